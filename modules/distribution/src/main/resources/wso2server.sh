@@ -27,6 +27,9 @@
 #   JAVA_OPTS       (Optional) Java runtime options used when the commands
 #                   is executed.
 #
+#   JVM_MEM_OPTS    (Optional) JVM heap options. Defaults to a 2 GB heap.
+#                   Size it for the largest messages and bursts expected.
+#
 # NOTE: Borrowed generously from Apache Tomcat startup scripts.
 # -----------------------------------------------------------------------------
 
@@ -267,6 +270,11 @@ fi
 START_EXIT_STATUS=121
 status=$START_EXIT_STATUS
 
+if [ -z "$JVM_MEM_OPTS" ]; then
+  JVM_MEM_OPTS="-Xms2048m -Xmx2048m -XX:MaxPermSize=256m"
+fi
+echo "Using Java memory options: $JVM_MEM_OPTS"
+
 #To monitor a Carbon server in remote JMX mode on linux host machines, set the below system property.
 #   -Djava.rmi.server.hostname="your.IP.goes.here"
 
@@ -274,7 +282,7 @@ while [ "$status" = "$START_EXIT_STATUS" ]
 do
         $JAVACMD \
         -Xbootclasspath/a:"$CARBON_XBOOTCLASSPATH" \
-        -Xms2048m -Xmx2048m -XX:MaxPermSize=256m \
+        $JVM_MEM_OPTS \
         -XX:+HeapDumpOnOutOfMemoryError \
         -XX:HeapDumpPath="$CARBON_HOME/repository/logs/heap-dump.hprof" \
         $JAVA_OPTS \
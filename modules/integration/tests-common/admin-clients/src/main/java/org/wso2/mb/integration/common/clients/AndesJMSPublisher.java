@@ -234,7 +234,9 @@ public class AndesJMSPublisher extends AndesJMSBase implements Runnable {
                 setMessageProperties(message);
 
                 if (null != message) {
-                    this.sender.send(message, DeliveryMode.PERSISTENT, 0, this.publisherConfig
+                    int deliveryMode = this.publisherConfig.isPersistentDelivery() ?
+                                       DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT;
+                    this.sender.send(message, deliveryMode, 0, this.publisherConfig
                             .getJMSMessageExpiryTime());
                     // need to commit if transactional
                     if(getConfig().isTransactionalSession()) {
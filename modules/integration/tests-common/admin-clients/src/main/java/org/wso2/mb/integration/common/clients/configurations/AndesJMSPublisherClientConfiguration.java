@@ -64,6 +64,12 @@ public class AndesJMSPublisherClientConfiguration extends AndesJMSClientConfigur
      */
     private boolean transactionalSession;
 
+    /**
+     * Whether messages are published with persistent delivery mode. Messages are persistent by
+     * default.
+     */
+    private boolean persistentDelivery = true;
+
     /**
      * List of JMS Header properties to set when publishing message
      */
@@ -394,7 +400,8 @@ public class AndesJMSPublisherClientConfiguration extends AndesJMSClientConfigur
                "ReadMessagesFromFilePath=" + this.readMessagesFromFilePath + "\n" +
                "JmsMessageType=" + this.jmsMessageType + "\n" +
                "NumberOfMessagesToSend=" + this.numberOfMessagesToSend + "\n" +
-               "JmsMessageExpiryTime=" + this.jmsMessageExpiryTime + "\n";
+               "JmsMessageExpiryTime=" + this.jmsMessageExpiryTime + "\n" +
+               "PersistentDelivery=" + this.persistentDelivery + "\n";
     }
 
     /**
@@ -420,6 +427,21 @@ public class AndesJMSPublisherClientConfiguration extends AndesJMSClientConfigur
         this.transactionalSession = transactionalSession;
     }
 
+    /**
+     * Whether messages are published with persistent delivery mode.
+     */
+    public boolean isPersistentDelivery() {
+        return persistentDelivery;
+    }
+
+    /**
+     * Set the delivery mode of published messages.
+     * @param persistentDelivery true to publish persistent messages and false to publish non persistent messages
+     */
+    public void setPersistentDelivery(boolean persistentDelivery) {
+        this.persistentDelivery = persistentDelivery;
+    }
+
     public List<JMSHeaderProperty> getJMSHeaderProperties() {
         return JMSHeaderProperties;
     }
@@ -27,12 +27,23 @@ import org.wso2.carbon.automation.engine.frameworkutils.FrameworkPathUtil;
 import org.wso2.carbon.integration.common.utils.mgt.ServerConfigurationManager;
 import org.xml.sax.SAXException;
 
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.xpath.XPathException;
 import javax.xml.xpath.XPathExpressionException;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Base class of all MB integration tests
@@ -142,5 +153,109 @@ public class MBIntegrationBaseTest {
         return Integer.parseInt(automationContext.getInstance().getPorts().get("rmiregistry"));
     }
 
+    /**
+     * Run a garbage collection in the broker and read its used heap through JMX, so that only the heap retained by
+     * the broker is counted.
+     *
+     * @return used heap of the broker in bytes
+     * @throws XPathExpressionException
+     * @throws IOException
+     * @throws JMException
+     */
+    protected long getBrokerUsedHeapAfterGC() throws XPathExpressionException, IOException, JMException {
+        JMXConnector jmxConnector = connectToBrokerJMX();
+        try {
+            MBeanServerConnection mbeanServerConnection = jmxConnector.getMBeanServerConnection();
+            ObjectName memoryMBeanName = new ObjectName("java.lang:type=Memory");
+            mbeanServerConnection.invoke(memoryMBeanName, "gc", null, null);
+            CompositeData heapMemoryUsage =
+                    (CompositeData) mbeanServerConnection.getAttribute(memoryMBeanName, "HeapMemoryUsage");
+            return (Long) heapMemoryUsage.get("used");
+        } finally {
+            jmxConnector.close();
+        }
+    }
+
+    /**
+     * Reset the peak usage of every heap memory pool of the broker through JMX, without running a garbage
+     * collection.
+     *
+     * @throws XPathExpressionException
+     * @throws IOException
+     * @throws JMException
+     */
+    protected void resetBrokerHeapPeakUsage() throws XPathExpressionException, IOException, JMException {
+        JMXConnector jmxConnector = connectToBrokerJMX();
+        try {
+            MBeanServerConnection mbeanServerConnection = jmxConnector.getMBeanServerConnection();
+            for (ObjectName memoryPoolName : getHeapMemoryPoolNames(mbeanServerConnection)) {
+                mbeanServerConnection.invoke(memoryPoolName, "resetPeakUsage", null, null);
+            }
+        } finally {
+            jmxConnector.close();
+        }
+    }
+
+    /**
+     * Read the peak used heap of the broker since the last {@link #resetBrokerHeapPeakUsage()} through JMX, without
+     * running a garbage collection. The peak is the sum of the peak usage of every heap memory pool.
+     *
+     * @return peak used heap of the broker in bytes
+     * @throws XPathExpressionException
+     * @throws IOException
+     * @throws JMException
+     */
+    protected long getBrokerPeakHeapUsage() throws XPathExpressionException, IOException, JMException {
+        JMXConnector jmxConnector = connectToBrokerJMX();
+        try {
+            MBeanServerConnection mbeanServerConnection = jmxConnector.getMBeanServerConnection();
+            long peakHeapUsage = 0L;
+            for (ObjectName memoryPoolName : getHeapMemoryPoolNames(mbeanServerConnection)) {
+                CompositeData peakUsage = (CompositeData) mbeanServerConnection.getAttribute(memoryPoolName,
+                                                                                            "PeakUsage");
+                peakHeapUsage = peakHeapUsage + (Long) peakUsage.get("used");
+            }
+            return peakHeapUsage;
+        } finally {
+            jmxConnector.close();
+        }
+    }
+
+    /**
+     * Connect to the JMX server of the broker as the admin user.
+     *
+     * @return the JMX connector, which has to be closed by the caller
+     * @throws XPathExpressionException
+     * @throws IOException
+     */
+    private JMXConnector connectToBrokerJMX() throws XPathExpressionException, IOException {
+        JMXServiceURL url = new JMXServiceURL("service:jmx:rmi://localhost:" + getJMXServerPort()
+                                              + "/jndi/rmi://localhost:" + getRMIRegistryPort() + "/jmxrmi");
+        Map<String, String[]> env = new HashMap<>();
+        String[] credentials = {"admin", "admin"};
+        env.put(JMXConnector.CREDENTIALS, credentials);
+        return JMXConnectorFactory.connect(url, env);
+    }
+
+    /**
+     * Get the names of the heap memory pools of the broker.
+     *
+     * @param mbeanServerConnection connection to the JMX server of the broker
+     * @return names of the heap memory pool MBeans
+     * @throws IOException
+     * @throws JMException
+     */
+    private List<ObjectName> getHeapMemoryPoolNames(MBeanServerConnection mbeanServerConnection)
+            throws IOException, JMException {
+        List<ObjectName> heapMemoryPoolNames = new ArrayList<>();
+        for (ObjectName memoryPoolName : mbeanServerConnection.queryNames(
+                new ObjectName("java.lang:type=MemoryPool,name=*"), null)) {
+            if ("HEAP".equals(mbeanServerConnection.getAttribute(memoryPoolName, "Type"))) {
+                heapMemoryPoolNames.add(memoryPoolName);
+            }
+        }
+        return heapMemoryPoolNames;
+    }
+
 
 }
@@ -74,6 +74,62 @@ public class DataAccessUtil {
         return count;
     }
 
+    /**
+     * Get number of message metadata entries in database across all queues. Used to measure how
+     * many entries a single publish results in.
+     * @return number of message metadata entries in database
+     * @throws DataAccessUtilException
+     */
+    public long getTotalMessageMetadataCount() throws DataAccessUtilException {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        long count = 0;
+        try {
+            connection = getConnection();
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_GET_TOTAL_MESSAGE_METADATA_COUNT);
+            resultSet = preparedStatement.executeQuery();
+            if (resultSet.next()) {
+                count = resultSet.getLong(RDBMSConstants.MSG_COUNT);
+            }
+        } catch (Exception e) {
+            throw new DataAccessUtilException("Failed to get total message metadata count", e);
+        } finally {
+            close(resultSet, "getTotalMessageMetadataCount");
+            close(preparedStatement, "getTotalMessageMetadataCount");
+            close(connection, "getTotalMessageMetadataCount");
+        }
+        return count;
+    }
+
+    /**
+     * Get number of messages whose content is still in the database although their metadata has
+     * been deleted. Acknowledged messages are expected to have both removed.
+     * @return number of messages with orphaned content
+     * @throws DataAccessUtilException
+     */
+    public long getOrphanedContentMessageCount() throws DataAccessUtilException {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        long count = 0;
+        try {
+            connection = getConnection();
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_GET_ORPHANED_CONTENT_MESSAGE_COUNT);
+            resultSet = preparedStatement.executeQuery();
+            if (resultSet.next()) {
+                count = resultSet.getLong(RDBMSConstants.MSG_COUNT);
+            }
+        } catch (Exception e) {
+            throw new DataAccessUtilException("Failed to get orphaned content message count", e);
+        } finally {
+            close(resultSet, "getOrphanedContentMessageCount");
+            close(preparedStatement, "getOrphanedContentMessageCount");
+            close(connection, "getOrphanedContentMessageCount");
+        }
+        return count;
+    }
+
     /**
      * Get queue id for a given queue.
      * @param queueName queue name
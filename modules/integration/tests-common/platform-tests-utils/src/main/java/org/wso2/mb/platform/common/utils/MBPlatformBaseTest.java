@@ -310,8 +310,18 @@ public class MBPlatformBaseTest {
      * @throws XPathExpressionException
      */
     protected HostAndPort getRandomAMQPBrokerAddress() throws XPathExpressionException {
-        String randomInstanceKey = getRandomMBInstance();
-        AutomationContext tempContext = getAutomationContextWithKey(randomInstanceKey);
+        return getAMQPBrokerAddress(getRandomMBInstance());
+    }
+
+    /**
+     * Give the AMQP broker URL of the given MB node.
+     *
+     * @param instanceKey instance key of the MB node
+     * @return Broker URL in host:port format (E.g "127.0.0.1:5672")
+     * @throws XPathExpressionException
+     */
+    protected HostAndPort getAMQPBrokerAddress(String instanceKey) throws XPathExpressionException {
+        AutomationContext tempContext = getAutomationContextWithKey(instanceKey);
 
         return HostAndPort.fromString(tempContext.getInstance().getHosts().get
                 ("default") + ":" + tempContext.getInstance().getPorts().get("amqp"));
@@ -26,6 +26,7 @@ public class RDBMSConstants {
     // Message Store tables
     protected static final String METADATA_TABLE = "MB_METADATA";
     protected static final String QUEUES_TABLE = "MB_QUEUE_MAPPING";
+    protected static final String CONTENT_TABLE = "MB_CONTENT";
 
     // Message Store table columns
     protected static final String MESSAGE_ID = "MESSAGE_ID";
@@ -60,6 +61,24 @@ public class RDBMSConstants {
                 + " FROM " + METADATA_TABLE
                 + " WHERE " + QUEUE_ID + "=?";
 
+    /**
+     * Prepared statement for getting the number of message metadata entries in the store
+     */
+    protected static final String PS_GET_TOTAL_MESSAGE_METADATA_COUNT =
+            "SELECT COUNT(" + MESSAGE_ID + ") AS " + MSG_COUNT
+                + " FROM " + METADATA_TABLE;
+
+    /**
+     * Prepared statement for getting the number of messages which still have content in the store
+     * after their metadata has been deleted
+     */
+    protected static final String PS_GET_ORPHANED_CONTENT_MESSAGE_COUNT =
+            "SELECT COUNT(DISTINCT " + MESSAGE_ID + ") AS " + MSG_COUNT
+                + " FROM " + CONTENT_TABLE
+                + " WHERE " + MESSAGE_ID + " NOT IN ("
+                    + "SELECT " + MESSAGE_ID
+                    + " FROM " + METADATA_TABLE + ")";
+
     /**
      * Prepared statement for getting slots for a given queue which are in assigned state
      */
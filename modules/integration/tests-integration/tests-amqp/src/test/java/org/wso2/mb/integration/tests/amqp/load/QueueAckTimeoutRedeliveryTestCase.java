@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.amqp.load;
+
+import org.apache.commons.lang3.StringUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.carbon.integration.common.utils.LoginLogoutClient;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.operations.clients.AndesAdminClient;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.clients.operations.utils.JMSAcknowledgeMode;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+
+/**
+ * Load test case for acknowledgement timeouts with a large number of in-flight messages. Consumers
+ * which never acknowledge keep every delivered message in flight until its timeout expires and
+ * the broker redelivers it. The in-flight count is scaled by the number of consumers and the delay
+ * between the first delivery of all messages and their redelivery is logged for each count. It
+ * should stay close to the acknowledgement timeout as the in-flight count grows.
+ */
+public class QueueAckTimeoutRedeliveryTestCase extends MBIntegrationBaseTest {
+
+    /**
+     * Acknowledgement wait timeout in seconds
+     */
+    private static final long ACK_WAIT_TIMEOUT = 10L;
+
+    /**
+     * Number of messages each consumer keeps in flight. Matches the default
+     * ackHandling/maxUnackedMessages value.
+     */
+    private static final long IN_FLIGHT_MESSAGES_PER_CONSUMER = 1000L;
+
+    /**
+     * Maximum time to wait for each delivery round to complete
+     */
+    private static final long DELIVERY_WAIT_TIMEOUT = 300000L;
+
+    private static final String QUEUE_NAME_PREFIX = "ackTimeoutRedeliveryQueue";
+
+    /**
+     * Value of "AndesAckWaitTimeOut" system property before the test
+     */
+    private String defaultAndesAckWaitTimeOut = null;
+
+    private LoginLogoutClient loginLogoutClient;
+
+    private AndesAdminClient andesAdminClient;
+
+    /**
+     * Initialize the test as super tenant user, log in to the admin service and set the
+     * acknowledgement wait timeout.
+     *
+     * @throws Exception
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init() throws Exception {
+        super.init(TestUserMode.SUPER_TENANT_USER);
+        loginLogoutClient = new LoginLogoutClient(super.automationContext);
+        andesAdminClient = new AndesAdminClient(super.backendURL, loginLogoutClient.login());
+
+        defaultAndesAckWaitTimeOut = System.getProperty(AndesClientConstants.ANDES_ACK_WAIT_TIMEOUT_PROPERTY);
+        System.setProperty(AndesClientConstants.ANDES_ACK_WAIT_TIMEOUT_PROPERTY,
+                           Long.toString(ACK_WAIT_TIMEOUT * 1000L));
+    }
+
+    /**
+     * Number of consumers which never acknowledge. The in-flight message count grows with it.
+     *
+     * @return consumer counts
+     */
+    @DataProvider(name = "consumerCounts")
+    public static Object[][] consumerCounts() {
+        return new Object[][]{
+                {1},
+                {5},
+                {20}
+        };
+    }
+
+    /**
+     * 1. Start the given number of client acknowledging consumers on a queue which never acknowledge.
+     * 2. Publish 1000 messages per consumer and wait until all of them are delivered once.
+     * 3. Wait until all of them are redelivered after the acknowledgement timeout.
+     * 4. Log the time between the two delivery rounds and verify every message was redelivered.
+     *
+     * @param consumerCount number of consumers which never acknowledge
+     * @throws Exception
+     */
+    @Test(groups = {"wso2.mb", "queue"}, dataProvider = "consumerCounts")
+    public void performQueueAckTimeoutRedeliveryTestCase(int consumerCount) throws Exception {
+        String queueName = QUEUE_NAME_PREFIX + consumerCount;
+        long sendCount = IN_FLIGHT_MESSAGES_PER_CONSUMER * consumerCount;
+
+        AndesJMSConsumerClientConfiguration consumerConfig =
+                new AndesJMSConsumerClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, queueName);
+        consumerConfig.setAcknowledgeMode(JMSAcknowledgeMode.CLIENT_ACKNOWLEDGE);
+        consumerConfig.setAcknowledgeAfterEachMessageCount(sendCount * 10L);
+        consumerConfig.setPrintsPerMessageCount(sendCount / 10L);
+
+        AndesJMSPublisherClientConfiguration publisherConfig =
+                new AndesJMSPublisherClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, queueName);
+        publisherConfig.setNumberOfMessagesToSend(sendCount);
+        publisherConfig.setPrintsPerMessageCount(sendCount / 10L);
+
+        AndesClient consumerClient = new AndesClient(consumerConfig, consumerCount, true);
+        consumerClient.startClient();
+
+        AndesClient publisherClient = new AndesClient(publisherConfig, true);
+        long publishStartTime = System.currentTimeMillis();
+        publisherClient.startClient();
+
+        // First delivery of every message
+        boolean delivered = waitForReceivedMessageCount(consumerClient, sendCount);
+        long firstDeliveryTime = System.currentTimeMillis();
+
+        // Redelivery of every message after the acknowledgement timeout
+        boolean redelivered = waitForReceivedMessageCount(consumerClient, sendCount * 2L);
+        long redeliveryTime = System.currentTimeMillis();
+
+        AndesClientUtils.shutdownClient(consumerClient);
+        if (null != andesAdminClient.getQueueByName(queueName)) {
+            andesAdminClient.deleteQueue(queueName);
+        }
+
+        log.info("[ACK-TIMEOUT] Consumers:" + consumerCount + " InFlightMessages:" + sendCount + " AckWaitTimeout:" + ACK_WAIT_TIMEOUT
+                 + "s FirstDeliveryDuration:" + (firstDeliveryTime - publishStartTime)
+                 + "ms RedeliveryDelay:" + (redeliveryTime - firstDeliveryTime) + "ms");
+
+        // Evaluating
+        Assert.assertEquals(publisherClient.getSentMessageCount(), sendCount, "Message sending failed.");
+        Assert.assertTrue(delivered, "Messages were not delivered to the consumers.");
+        Assert.assertTrue(redelivered, "Messages were not redelivered after the acknowledgement timeout.");
+    }
+
+    /**
+     * Restore the acknowledgement wait timeout and log out from the admin service.
+     *
+     * @throws Exception
+     */
+    @AfterClass(alwaysRun = true)
+    public void cleanUp() throws Exception {
+        if (StringUtils.isBlank(defaultAndesAckWaitTimeOut)) {
+            System.clearProperty(AndesClientConstants.ANDES_ACK_WAIT_TIMEOUT_PROPERTY);
+        } else {
+            System.setProperty(AndesClientConstants.ANDES_ACK_WAIT_TIMEOUT_PROPERTY, defaultAndesAckWaitTimeOut);
+        }
+
+        loginLogoutClient.logout();
+    }
+
+    /**
+     * Wait until the consumer client received the given number of messages.
+     *
+     * @param consumerClient the consumer client
+     * @param expectedCount  the received message count to wait for
+     * @return true if the count was reached within {@value #DELIVERY_WAIT_TIMEOUT} milliseconds
+     */
+    private boolean waitForReceivedMessageCount(AndesClient consumerClient, long expectedCount) {
+        long deadline = System.currentTimeMillis() + DELIVERY_WAIT_TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            if (expectedCount <= consumerClient.getReceivedMessageCount()) {
+                return true;
+            }
+            AndesClientUtils.sleepForInterval(100L);
+        }
+        return false;
+    }
+}
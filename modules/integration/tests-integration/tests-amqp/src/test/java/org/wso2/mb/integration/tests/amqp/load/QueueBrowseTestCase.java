@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.amqp.load;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.andes.stub.AndesAdminServiceBrokerManagerAdminException;
+import org.wso2.carbon.andes.stub.admin.types.Message;
+import org.wso2.carbon.andes.stub.admin.types.Queue;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.carbon.integration.common.utils.LoginLogoutClient;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.operations.clients.AndesAdminClient;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+
+import java.rmi.RemoteException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Load test case for browsing a deep queue through the admin service. Pages are read one after
+ * the other from the head of the queue to its tail while the time taken for each page is logged.
+ * Reading a page deep in the queue should cost the same as reading the first page.
+ */
+public class QueueBrowseTestCase extends MBIntegrationBaseTest {
+
+    /**
+     * Number of messages kept in the browsed queue
+     */
+    private static final long SEND_COUNT = 100000L;
+
+    /**
+     * Number of messages requested per page. Matches the default
+     * managementConsole/messageBatchSizeForBrowserSubscriptions value.
+     */
+    private static final int PAGE_SIZE = 200;
+
+    /**
+     * Number of pages to log a browse timing for
+     */
+    private static final int PAGES_PER_LOG = 50;
+
+    /**
+     * Maximum time to wait for published messages to be stored
+     */
+    private static final long PUBLISH_WAIT_TIMEOUT = 300000L;
+
+    private static final String QUEUE_NAME = "browseLoadQueue";
+
+    private LoginLogoutClient loginLogoutClient;
+
+    private AndesAdminClient andesAdminClient;
+
+    /**
+     * Initialize the test as super tenant user and log in to the admin service.
+     *
+     * @throws Exception
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init() throws Exception {
+        super.init(TestUserMode.SUPER_TENANT_USER);
+        loginLogoutClient = new LoginLogoutClient(super.automationContext);
+        andesAdminClient = new AndesAdminClient(super.backendURL, loginLogoutClient.login());
+    }
+
+    /**
+     * 1. Publish 100000 messages to a queue without any subscriber.
+     * 2. Browse the whole queue page by page.
+     * 3. Verify that every message is returned exactly once and log the time taken for the first
+     * and the last pages.
+     *
+     * @throws Exception
+     */
+    @Test(groups = {"wso2.mb", "queue"})
+    public void performDeepQueueBrowseTestCase() throws Exception {
+        AndesJMSPublisherClientConfiguration publisherConfig =
+                new AndesJMSPublisherClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, QUEUE_NAME);
+        publisherConfig.setNumberOfMessagesToSend(SEND_COUNT);
+        publisherConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+
+        AndesClient publisherClient = new AndesClient(publisherConfig, true);
+        publisherClient.startClient();
+
+        long deadline = System.currentTimeMillis() + PUBLISH_WAIT_TIMEOUT;
+        while (getQueueMessageCount() < SEND_COUNT
+               && System.currentTimeMillis() < deadline) {
+            AndesClientUtils.sleepForInterval(1000L);
+        }
+
+        Set<String> browsedMessageIds = new HashSet<>();
+        long firstPageDuration = -1L;
+        long lastPageDuration = 0L;
+        int pageNumber = 0;
+        Message[] page;
+        do {
+            long pageStartTime = System.currentTimeMillis();
+            page = andesAdminClient.browseQueue(QUEUE_NAME, pageNumber * PAGE_SIZE, PAGE_SIZE);
+            long pageDuration = System.currentTimeMillis() - pageStartTime;
+
+            if (null != page) {
+                for (Message message : page) {
+                    Assert.assertTrue(browsedMessageIds.add(message.getJMSMessageId()),
+                                      "Message " + message.getJMSMessageId() + " returned in more than one page.");
+                }
+                lastPageDuration = pageDuration;
+                if (firstPageDuration < 0) {
+                    firstPageDuration = pageDuration;
+                }
+                if (0 == pageNumber % PAGES_PER_LOG) {
+                    log.info("[BROWSE] Page:" + pageNumber + " Messages:" + page.length + " Duration:"
+                             + pageDuration + "ms");
+                }
+            }
+            pageNumber++;
+        } while (null != page && PAGE_SIZE == page.length);
+
+        log.info("[BROWSE] Pages:" + pageNumber + " FirstPageDuration:" + firstPageDuration
+                 + "ms LastPageDuration:" + lastPageDuration + "ms");
+
+        Assert.assertEquals(publisherClient.getSentMessageCount(), SEND_COUNT, "Message sending failed.");
+        Assert.assertEquals(browsedMessageIds.size(), (int) SEND_COUNT, "Browsing did not return every message.");
+    }
+
+    /**
+     * Get the message count of the browsed queue. The publisher starts asynchronously, so the queue
+     * may not have been created yet.
+     *
+     * @return message count of the queue, 0 if the queue does not exist
+     * @throws AndesAdminServiceBrokerManagerAdminException
+     * @throws RemoteException
+     */
+    private long getQueueMessageCount() throws AndesAdminServiceBrokerManagerAdminException, RemoteException {
+        Queue queue = andesAdminClient.getQueueByName(QUEUE_NAME);
+        return null != queue ? queue.getMessageCount() : 0L;
+    }
+
+    /**
+     * Delete the browsed queue and log out from the admin service.
+     *
+     * @throws Exception
+     */
+    @AfterClass(alwaysRun = true)
+    public void cleanUp() throws Exception {
+        if (null != andesAdminClient.getQueueByName(QUEUE_NAME)) {
+            andesAdminClient.deleteQueue(QUEUE_NAME);
+        }
+        loginLogoutClient.logout();
+    }
+}
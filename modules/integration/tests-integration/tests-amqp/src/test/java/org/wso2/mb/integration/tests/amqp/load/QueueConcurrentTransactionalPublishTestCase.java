@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.amqp.load;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+
+/**
+ * Load test case for concurrent transactional publishers. Every publisher commits after each
+ * message, so each commit is a separate store transaction on the broker. The total publish
+ * throughput is logged for a growing number of publishers and should scale with concurrency
+ * rather than being bound by the latency of a single commit.
+ */
+public class QueueConcurrentTransactionalPublishTestCase extends MBIntegrationBaseTest {
+
+    /**
+     * Number of messages committed by each publisher
+     */
+    private static final long SEND_COUNT_PER_PUBLISHER = 1000L;
+
+    /**
+     * Maximum time to wait for every publisher to commit its messages
+     */
+    private static final long PUBLISH_WAIT_TIMEOUT = 600000L;
+
+    private static final String QUEUE_NAME_PREFIX = "concurrentTransactionalPublishQueue";
+
+    /**
+     * Initialize the test as super tenant user.
+     *
+     * @throws Exception
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init() throws Exception {
+        super.init(TestUserMode.SUPER_TENANT_USER);
+    }
+
+    /**
+     * Number of concurrent transactional publishers.
+     *
+     * @return publisher counts
+     */
+    @DataProvider(name = "publisherCounts")
+    public static Object[][] publisherCounts() {
+        return new Object[][]{
+                {1},
+                {10},
+                {50}
+        };
+    }
+
+    /**
+     * 1. Start a consumer on a queue.
+     * 2. Start the given number of transactional publishers, each committing 1000 messages one by
+     * one.
+     * 3. Log the combined publisher throughput over the wall clock publish time and verify every committed message was received.
+     *
+     * @param publisherCount number of concurrent transactional publishers
+     * @throws Exception
+     */
+    @Test(groups = {"wso2.mb", "queue"}, dataProvider = "publisherCounts")
+    public void performQueueConcurrentTransactionalPublishTestCase(int publisherCount) throws Exception {
+        String queueName = QUEUE_NAME_PREFIX + publisherCount;
+        long sendCount = SEND_COUNT_PER_PUBLISHER * publisherCount;
+
+        AndesJMSConsumerClientConfiguration consumerConfig =
+                new AndesJMSConsumerClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, queueName);
+        consumerConfig.setMaximumMessagesToReceived(sendCount);
+        consumerConfig.setPrintsPerMessageCount(sendCount / 10L);
+
+        AndesJMSPublisherClientConfiguration publisherConfig =
+                new AndesJMSPublisherClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, queueName);
+        publisherConfig.setNumberOfMessagesToSend(SEND_COUNT_PER_PUBLISHER);
+        publisherConfig.setPrintsPerMessageCount(SEND_COUNT_PER_PUBLISHER / 10L);
+        publisherConfig.setTransactionalSession(true);
+
+        // Creating clients
+        AndesClient consumerClient = new AndesClient(consumerConfig, true);
+        consumerClient.startClient();
+
+        AndesClient publisherClient = new AndesClient(publisherConfig, publisherCount, true);
+        long publishStartTime = System.currentTimeMillis();
+        publisherClient.startClient();
+
+        long deadline = publishStartTime + PUBLISH_WAIT_TIMEOUT;
+        while (publisherClient.getSentMessageCount() < sendCount && System.currentTimeMillis() < deadline) {
+            AndesClientUtils.sleepForInterval(100L);
+        }
+        long publishDuration = System.currentTimeMillis() - publishStartTime;
+
+        AndesClientUtils.waitForMessagesAndShutdown(consumerClient, AndesClientConstants.DEFAULT_RUN_TIME);
+
+        // getPublisherTPS() is the average of a single publisher, so the combined rate is taken from the wall clock
+        log.info("[TX-PUBLISH] Publishers:" + publisherCount + " CommittedMessages:" + sendCount
+                 + " PublishDuration:" + publishDuration + "ms TotalPublisherTPS:"
+                 + ((double) publisherClient.getSentMessageCount() * 1000 / Math.max(publishDuration, 1L))
+                 + " AveragePublisherTPS:" + publisherClient.getPublisherTPS() + " ConsumerTPS:"
+                 + consumerClient.getConsumerTPS());
+
+        // Evaluating
+        Assert.assertEquals(publisherClient.getSentMessageCount(), sendCount, "Message sending failed.");
+        Assert.assertEquals(consumerClient.getReceivedMessageCount(), sendCount, "Message receiving failed.");
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.amqp.load;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.carbon.integration.common.utils.mgt.ServerConfigurationManager;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.clients.operations.utils.JMSAcknowledgeMode;
+import org.wso2.mb.integration.common.utils.backend.ConfigurationEditor;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Load test case to measure queue delivery throughput across consumers with different processing
+ * rates. Fast and slow consumers share a queue and the time taken to drain the queue together with
+ * the share of messages each consumer received is logged for different unacknowledged message
+ * limits. Fast consumers should take most of the load without waiting on the slow ones.
+ */
+public class QueueHeterogeneousConsumersTestCase extends MBIntegrationBaseTest {
+
+    /**
+     * Message count sent for each unacknowledged message limit
+     */
+    private static final long SEND_COUNT = 20000L;
+
+    /**
+     * Number of consumers processing without delay
+     */
+    private static final int FAST_CONSUMER_COUNT = 2;
+
+    /**
+     * Number of consumers processing with a delay
+     */
+    private static final int SLOW_CONSUMER_COUNT = 2;
+
+    /**
+     * Processing delay of a slow consumer per message in milliseconds
+     */
+    private static final long SLOW_CONSUMER_DELAY = 20L;
+
+    /**
+     * Maximum time to wait for the queue to be drained
+     */
+    private static final long DRAIN_TIMEOUT = 600000L;
+
+    private static final String QUEUE_NAME_PREFIX = "heterogeneousConsumersQueue";
+
+    /**
+     * Initialize the test as super tenant user.
+     *
+     * @throws Exception
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init() throws Exception {
+        super.init(TestUserMode.SUPER_TENANT_USER);
+    }
+
+    /**
+     * Maximum unacknowledged message counts per subscription to compare. The first value is the
+     * default of ackHandling/maxUnackedMessages.
+     *
+     * @return unacknowledged message limits
+     */
+    @DataProvider(name = "maxUnackedMessages")
+    public static Object[][] maxUnackedMessages() {
+        return new Object[][]{
+                {"1000"},
+                {"100"},
+                {"10"}
+        };
+    }
+
+    /**
+     * 1. Restart the server with the given maximum unacknowledged message count.
+     * 2. Start 2 consumers without delay and 2 consumers with a 20 millisecond delay per message on
+     * the same queue.
+     * 3. Publish 20000 messages and measure the time taken for the consumers to drain the queue.
+     * 4. Log the share of messages each consumer received and verify no message is lost.
+     *
+     * @param maxUnackedMessages maximum unacknowledged messages per subscription
+     * @throws Exception
+     */
+    @Test(groups = {"wso2.mb", "queue"}, dataProvider = "maxUnackedMessages")
+    public void performQueueHeterogeneousConsumersTestCase(String maxUnackedMessages) throws Exception {
+        super.serverManager = new ServerConfigurationManager(automationContext);
+        String defaultMBConfigurationPath = ServerConfigurationManager.getCarbonHome() +
+                File.separator + "repository" + File.separator + "conf" + File.separator + "broker.xml";
+
+        ConfigurationEditor configurationEditor = new ConfigurationEditor(defaultMBConfigurationPath);
+        configurationEditor.updateProperty(AndesConfiguration.PERFORMANCE_TUNING_ACK_HANDLING_MAX_UNACKED_MESSAGES,
+                                           maxUnackedMessages);
+        configurationEditor.applyUpdatedConfigurationAndRestartServer(serverManager);
+
+        String queueName = QUEUE_NAME_PREFIX + maxUnackedMessages;
+
+        AndesJMSConsumerClientConfiguration fastConsumerConfig =
+                new AndesJMSConsumerClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, queueName);
+        fastConsumerConfig.setAcknowledgeMode(JMSAcknowledgeMode.AUTO_ACKNOWLEDGE);
+        fastConsumerConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+
+        AndesJMSConsumerClientConfiguration slowConsumerConfig = fastConsumerConfig.clone();
+        slowConsumerConfig.setRunningDelay(SLOW_CONSUMER_DELAY);
+
+        List<AndesClient> fastConsumerClients = new ArrayList<>(FAST_CONSUMER_COUNT);
+        for (int i = 0; i < FAST_CONSUMER_COUNT; i++) {
+            AndesClient fastConsumerClient = new AndesClient(fastConsumerConfig.clone(), true);
+            fastConsumerClient.startClient();
+            fastConsumerClients.add(fastConsumerClient);
+        }
+
+        List<AndesClient> slowConsumerClients = new ArrayList<>(SLOW_CONSUMER_COUNT);
+        for (int i = 0; i < SLOW_CONSUMER_COUNT; i++) {
+            AndesClient slowConsumerClient = new AndesClient(slowConsumerConfig.clone(), true);
+            slowConsumerClient.startClient();
+            slowConsumerClients.add(slowConsumerClient);
+        }
+
+        AndesJMSPublisherClientConfiguration publisherConfig =
+                new AndesJMSPublisherClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, queueName);
+        publisherConfig.setNumberOfMessagesToSend(SEND_COUNT);
+        publisherConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+
+        AndesClient publisherClient = new AndesClient(publisherConfig, true);
+        long publishStartTime = System.currentTimeMillis();
+        publisherClient.startClient();
+
+        long deadline = publishStartTime + DRAIN_TIMEOUT;
+        long receivedCount = 0L;
+        while (receivedCount < SEND_COUNT && System.currentTimeMillis() < deadline) {
+            AndesClientUtils.sleepForInterval(100L);
+            receivedCount = getReceivedMessageCount(fastConsumerClients)
+                            + getReceivedMessageCount(slowConsumerClients);
+        }
+        long drainDuration = System.currentTimeMillis() - publishStartTime;
+
+        long fastReceivedCount = getReceivedMessageCount(fastConsumerClients);
+        long slowReceivedCount = getReceivedMessageCount(slowConsumerClients);
+
+        for (AndesClient fastConsumerClient : fastConsumerClients) {
+            AndesClientUtils.shutdownClient(fastConsumerClient);
+        }
+        for (AndesClient slowConsumerClient : slowConsumerClients) {
+            AndesClientUtils.shutdownClient(slowConsumerClient);
+        }
+
+        log.info("[HETEROGENEOUS] MaxUnackedMessages:" + maxUnackedMessages + " Messages:" + SEND_COUNT
+                 + " DrainDuration:" + drainDuration + "ms FastConsumersReceived:" + fastReceivedCount
+                 + " SlowConsumersReceived:" + slowReceivedCount + " TPS:"
+                 + ((double) SEND_COUNT * 1000 / drainDuration));
+
+        // Evaluating
+        Assert.assertEquals(publisherClient.getSentMessageCount(), SEND_COUNT, "Message sending failed.");
+        Assert.assertEquals(fastReceivedCount + slowReceivedCount, SEND_COUNT, "Message receiving failed.");
+    }
+
+    /**
+     * Restore the broker configuration changed for the unacknowledged message limit.
+     *
+     * @throws Exception
+     */
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws Exception {
+        super.serverManager.restoreToLastConfiguration(true);
+    }
+
+    /**
+     * Get the total number of messages received by the given consumers.
+     *
+     * @param consumerClients the consumers
+     * @return total received message count
+     */
+    private long getReceivedMessageCount(List<AndesClient> consumerClients) {
+        long receivedCount = 0L;
+        for (AndesClient consumerClient : consumerClients) {
+            receivedCount = receivedCount + consumerClient.getReceivedMessageCount();
+        }
+        return receivedCount;
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.amqp.load;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.andes.stub.AndesAdminServiceBrokerManagerAdminException;
+import org.wso2.carbon.andes.stub.admin.types.Queue;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.carbon.integration.common.utils.LoginLogoutClient;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.operations.clients.AndesAdminClient;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+
+import java.rmi.RemoteException;
+
+/**
+ * Load test case to measure the cost of message expiry. A queue is filled with a backlog of
+ * messages that never expire, followed by a fixed number of messages with a short time to live.
+ * The time taken by the broker to remove the expired messages is logged for growing backlog
+ * sizes. Expiry cost should depend on the number of expired messages and not on the number of
+ * stored messages.
+ */
+public class QueueMessageExpiryTestCase extends MBIntegrationBaseTest {
+
+    /**
+     * Number of messages published with a time to live
+     */
+    private static final long EXPIRING_MESSAGE_COUNT = 1000L;
+
+    /**
+     * Time to live of the expiring messages in milliseconds
+     */
+    private static final long MESSAGE_TIME_TO_LIVE = 5000L;
+
+    /**
+     * Maximum time to wait for expired messages to be removed from the store, measured from the
+     * moment the messages become due. Kept above the default expiry check interval.
+     */
+    private static final long EXPIRY_WAIT_TIMEOUT = 60000L;
+
+    /**
+     * Maximum time to wait for published messages to be stored
+     */
+    private static final long PUBLISH_WAIT_TIMEOUT = 300000L;
+
+    /**
+     * Interval at which the queue message count is polled while waiting for expiry
+     */
+    private static final long EXPIRY_POLL_INTERVAL = 500L;
+
+    /**
+     * Prefix of the queues used by the test
+     */
+    private static final String QUEUE_NAME_PREFIX = "messageExpiryQueue";
+
+    private LoginLogoutClient loginLogoutClient;
+
+    private AndesAdminClient andesAdminClient;
+
+    /**
+     * Initialize the test as super tenant user and log in to the admin service.
+     *
+     * @throws Exception
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init() throws Exception {
+        super.init(TestUserMode.SUPER_TENANT_USER);
+        loginLogoutClient = new LoginLogoutClient(super.automationContext);
+        andesAdminClient = new AndesAdminClient(super.backendURL, loginLogoutClient.login());
+    }
+
+    /**
+     * Backlog sizes of non expiring messages the expiring messages are mixed with.
+     *
+     * @return backlog sizes
+     */
+    @DataProvider(name = "backlogSizes")
+    public static Object[][] backlogSizes() {
+        return new Object[][]{
+                {1000L},
+                {10000L},
+                {100000L}
+        };
+    }
+
+    /**
+     * 1. Publish a backlog of messages without expiry to a queue.
+     * 2. Publish 1000 messages with a 5 second time to live to the same queue.
+     * 3. Measure the time taken for the queue to drop back to the backlog size once the expiring
+     * messages are due.
+     * 4. Consume the queue and verify that only the backlog is delivered.
+     *
+     * @param backlogSize number of messages which should not expire
+     * @throws Exception
+     */
+    @Test(groups = {"wso2.mb", "queue"}, dataProvider = "backlogSizes")
+    public void performQueueMessageExpiryTestCase(long backlogSize) throws Exception {
+        String queueName = QUEUE_NAME_PREFIX + backlogSize;
+
+        // Publishing the backlog which never expires
+        AndesJMSPublisherClientConfiguration backlogPublisherConfig =
+                new AndesJMSPublisherClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, queueName);
+        backlogPublisherConfig.setNumberOfMessagesToSend(backlogSize);
+        backlogPublisherConfig.setPrintsPerMessageCount(backlogSize / 10L);
+
+        AndesClient backlogPublisherClient = new AndesClient(backlogPublisherConfig, true);
+        backlogPublisherClient.startClient();
+        Assert.assertTrue(waitForQueueMessageCount(queueName, backlogSize, PUBLISH_WAIT_TIMEOUT),
+                          "Backlog of " + backlogSize + " messages was not stored in " + queueName + ".");
+
+        // Publishing the messages which expire
+        AndesJMSPublisherClientConfiguration expiringPublisherConfig =
+                new AndesJMSPublisherClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, queueName);
+        expiringPublisherConfig.setNumberOfMessagesToSend(EXPIRING_MESSAGE_COUNT);
+        expiringPublisherConfig.setPrintsPerMessageCount(EXPIRING_MESSAGE_COUNT / 10L);
+        expiringPublisherConfig.setJMSMessageExpiryTime(MESSAGE_TIME_TO_LIVE);
+
+        AndesClient expiringPublisherClient = new AndesClient(expiringPublisherConfig, true);
+        expiringPublisherClient.startClient();
+        Assert.assertTrue(waitForQueueMessageCount(queueName, backlogSize + EXPIRING_MESSAGE_COUNT,
+                                                   PUBLISH_WAIT_TIMEOUT),
+                          "Expiring messages were not stored in " + queueName + ".");
+
+        // Waiting until the last expiring message is due and measuring how long the removal takes
+        AndesClientUtils.sleepForInterval(MESSAGE_TIME_TO_LIVE);
+        long expiryStartTime = System.currentTimeMillis();
+        boolean expired = waitForQueueMessageCount(queueName, backlogSize, EXPIRY_WAIT_TIMEOUT);
+        long expiryDuration = System.currentTimeMillis() - expiryStartTime;
+
+        log.info("[EXPIRY] Queue:" + queueName + " StoredMessages:" + backlogSize + " ExpiredMessages:"
+                 + EXPIRING_MESSAGE_COUNT + " ExpiryDuration:" + expiryDuration + "ms");
+
+        Assert.assertTrue(expired, "Expired messages were not removed from " + queueName + " within "
+                                   + EXPIRY_WAIT_TIMEOUT + "ms.");
+
+        // Consuming the backlog
+        AndesJMSConsumerClientConfiguration consumerConfig =
+                new AndesJMSConsumerClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, queueName);
+        consumerConfig.setMaximumMessagesToReceived(backlogSize + EXPIRING_MESSAGE_COUNT);
+        consumerConfig.setPrintsPerMessageCount(backlogSize / 10L);
+
+        AndesClient consumerClient = new AndesClient(consumerConfig, true);
+        consumerClient.startClient();
+
+        AndesClientUtils.waitForMessagesAndShutdown(consumerClient, AndesClientConstants.DEFAULT_RUN_TIME);
+
+        // Evaluating
+        Assert.assertEquals(backlogPublisherClient.getSentMessageCount(), backlogSize,
+                            "Backlog message sending failed.");
+        Assert.assertEquals(expiringPublisherClient.getSentMessageCount(), EXPIRING_MESSAGE_COUNT,
+                            "Expiring message sending failed.");
+        Assert.assertEquals(consumerClient.getReceivedMessageCount(), backlogSize,
+                            "Expired messages were delivered or backlog messages were lost.");
+    }
+
+    /**
+     * Delete the queues used by the test and log out from the admin service.
+     *
+     * @throws Exception
+     */
+    @AfterClass(alwaysRun = true)
+    public void cleanUp() throws Exception {
+        for (Object[] backlogSize : backlogSizes()) {
+            String queueName = QUEUE_NAME_PREFIX + backlogSize[0];
+            if (null != andesAdminClient.getQueueByName(queueName)) {
+                andesAdminClient.deleteQueue(queueName);
+            }
+        }
+        loginLogoutClient.logout();
+    }
+
+    /**
+     * Wait until the message count of a queue reaches the given value.
+     *
+     * @param queueName     the queue name
+     * @param expectedCount the message count to wait for
+     * @param timeout       maximum time to wait in milliseconds
+     * @return true if the count was reached within the timeout, false otherwise
+     * @throws AndesAdminServiceBrokerManagerAdminException
+     * @throws RemoteException
+     */
+    private boolean waitForQueueMessageCount(String queueName, long expectedCount, long timeout)
+            throws AndesAdminServiceBrokerManagerAdminException, RemoteException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (System.currentTimeMillis() < deadline) {
+            Queue queue = andesAdminClient.getQueueByName(queueName);
+            if (null != queue && expectedCount == queue.getMessageCount()) {
+                return true;
+            }
+            AndesClientUtils.sleepForInterval(EXPIRY_POLL_INTERVAL);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.amqp.load;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+
+/**
+ * Load test case for flow control under bursty traffic of mixed message sizes. Publishers of
+ * 10MB messages and publishers of tiny messages run at the same time against separate queues.
+ * The server should neither run out of memory because of the large messages nor throttle the
+ * tiny messages more than needed, so the throughput of both is logged.
+ */
+public class QueueMixedSizeBurstTestCase extends MBIntegrationBaseTest {
+
+    /**
+     * Number of large messages sent by each large message publisher
+     */
+    private static final long LARGE_SEND_COUNT_PER_PUBLISHER = 25L;
+
+    /**
+     * Number of large message publishers
+     */
+    private static final int LARGE_PUBLISHER_COUNT = 4;
+
+    /**
+     * Size of a large message in kilobytes
+     */
+    private static final int LARGE_MESSAGE_SIZE_IN_KB = 10 * 1024;
+
+    /**
+     * Number of tiny messages sent by each tiny message publisher
+     */
+    private static final long TINY_SEND_COUNT_PER_PUBLISHER = 50000L;
+
+    /**
+     * Number of tiny message publishers
+     */
+    private static final int TINY_PUBLISHER_COUNT = 4;
+
+    private static final String LARGE_QUEUE_NAME = "mixedSizeBurstLargeQueue";
+
+    private static final String TINY_QUEUE_NAME = "mixedSizeBurstTinyQueue";
+
+    /**
+     * Initialize the test as super tenant user.
+     *
+     * @throws Exception
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init() throws Exception {
+        super.init(TestUserMode.SUPER_TENANT_USER);
+    }
+
+    /**
+     * 1. Start a consumer for a queue of 10MB messages and a consumer for a queue of tiny messages.
+     * 2. Start 4 publishers sending 10MB messages and 4 publishers sending tiny messages at once.
+     * 3. Log the throughput of both consumers and verify every message was received.
+     *
+     * @throws Exception
+     */
+    @Test(groups = {"wso2.mb", "queue"})
+    public void performQueueMixedSizeBurstTestCase() throws Exception {
+        long largeSendCount = LARGE_SEND_COUNT_PER_PUBLISHER * LARGE_PUBLISHER_COUNT;
+        long tinySendCount = TINY_SEND_COUNT_PER_PUBLISHER * TINY_PUBLISHER_COUNT;
+
+        // Creating a file of 10MB
+        AndesClientUtils.createMockFile(AndesClientConstants.FILE_PATH_FOR_ONE_KB_SAMPLE_FILE,
+                                        AndesClientConstants.FILE_PATH_FOR_CREATING_A_NEW_FILE,
+                                        LARGE_MESSAGE_SIZE_IN_KB);
+
+        AndesJMSConsumerClientConfiguration largeConsumerConfig =
+                new AndesJMSConsumerClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, LARGE_QUEUE_NAME);
+        largeConsumerConfig.setMaximumMessagesToReceived(largeSendCount);
+        largeConsumerConfig.setPrintsPerMessageCount(largeSendCount / 10L);
+
+        AndesJMSConsumerClientConfiguration tinyConsumerConfig =
+                new AndesJMSConsumerClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, TINY_QUEUE_NAME);
+        tinyConsumerConfig.setMaximumMessagesToReceived(tinySendCount);
+        tinyConsumerConfig.setPrintsPerMessageCount(tinySendCount / 10L);
+
+        AndesJMSPublisherClientConfiguration largePublisherConfig =
+                new AndesJMSPublisherClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, LARGE_QUEUE_NAME);
+        largePublisherConfig.setNumberOfMessagesToSend(LARGE_SEND_COUNT_PER_PUBLISHER);
+        largePublisherConfig.setPrintsPerMessageCount(LARGE_SEND_COUNT_PER_PUBLISHER / 5L);
+        largePublisherConfig.setReadMessagesFromFilePath(AndesClientConstants.FILE_PATH_FOR_CREATING_A_NEW_FILE);
+
+        AndesJMSPublisherClientConfiguration tinyPublisherConfig =
+                new AndesJMSPublisherClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, TINY_QUEUE_NAME);
+        tinyPublisherConfig.setNumberOfMessagesToSend(TINY_SEND_COUNT_PER_PUBLISHER);
+        tinyPublisherConfig.setPrintsPerMessageCount(TINY_SEND_COUNT_PER_PUBLISHER / 10L);
+
+        // Creating clients
+        AndesClient largeConsumerClient = new AndesClient(largeConsumerConfig, true);
+        largeConsumerClient.startClient();
+
+        AndesClient tinyConsumerClient = new AndesClient(tinyConsumerConfig, true);
+        tinyConsumerClient.startClient();
+
+        AndesClient largePublisherClient = new AndesClient(largePublisherConfig, LARGE_PUBLISHER_COUNT, true);
+        AndesClient tinyPublisherClient = new AndesClient(tinyPublisherConfig, TINY_PUBLISHER_COUNT, true);
+        largePublisherClient.startClient();
+        tinyPublisherClient.startClient();
+
+        AndesClientUtils.waitForMessagesAndShutdown(tinyConsumerClient, AndesClientConstants.DEFAULT_RUN_TIME);
+        AndesClientUtils.waitForMessagesAndShutdown(largeConsumerClient, AndesClientConstants.DEFAULT_RUN_TIME);
+
+        log.info("[MIXED-SIZE] LargeMessages:" + largeSendCount + " LargeConsumerTPS:"
+                 + largeConsumerClient.getConsumerTPS() + " TinyMessages:" + tinySendCount + " TinyConsumerTPS:"
+                 + tinyConsumerClient.getConsumerTPS() + " TinyPublisherTPS:" + tinyPublisherClient.getPublisherTPS());
+
+        // Evaluating
+        Assert.assertEquals(largePublisherClient.getSentMessageCount(), largeSendCount,
+                            "Large message sending failed.");
+        Assert.assertEquals(tinyPublisherClient.getSentMessageCount(), tinySendCount,
+                            "Tiny message sending failed.");
+        Assert.assertEquals(largeConsumerClient.getReceivedMessageCount(), largeSendCount,
+                            "Large message receiving failed.");
+        Assert.assertEquals(tinyConsumerClient.getReceivedMessageCount(), tinySendCount,
+                            "Tiny message receiving failed.");
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.amqp.load;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.andes.stub.admin.types.Queue;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.carbon.integration.common.utils.LoginLogoutClient;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.operations.clients.AndesAdminClient;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+
+/**
+ * Load test case for purging a large queue while other queues carry live traffic. Live traffic
+ * is first measured without a purge as a baseline. The purge request is then timed while the same
+ * live traffic runs, the purged queue is polled until it is empty and the consumer throughput of
+ * the live queue is logged against the baseline.
+ */
+public class QueuePurgeUnderLoadTestCase extends MBIntegrationBaseTest {
+
+    /**
+     * Number of messages in the purged queue
+     */
+    private static final long PURGE_MESSAGE_COUNT = 500000L;
+
+    /**
+     * Number of messages sent through the live queue while the purge runs
+     */
+    private static final long LIVE_MESSAGE_COUNT = 50000L;
+
+    /**
+     * Maximum time to wait for the purged queue to drain or fill
+     */
+    private static final long QUEUE_WAIT_TIMEOUT = 600000L;
+
+    private static final String PURGE_QUEUE_NAME = "purgeUnderLoadQueue";
+
+    private static final String LIVE_QUEUE_NAME = "purgeUnderLoadLiveQueue";
+
+    private LoginLogoutClient loginLogoutClient;
+
+    private AndesAdminClient andesAdminClient;
+
+    /**
+     * Initialize the test as super tenant user and log in to the admin service.
+     *
+     * @throws Exception
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init() throws Exception {
+        super.init(TestUserMode.SUPER_TENANT_USER);
+        loginLogoutClient = new LoginLogoutClient(super.automationContext);
+        andesAdminClient = new AndesAdminClient(super.backendURL, loginLogoutClient.login());
+    }
+
+    /**
+     * 1. Fill a queue with 500000 messages.
+     * 2. Send 50000 messages through a second queue without a purge as a baseline.
+     * 3. Start the same traffic on the second queue again.
+     * 4. Purge the first queue and wait until it is empty.
+     * 5. Log the live consumer throughput against the baseline and verify the consumer on the
+     * second queue received every message.
+     *
+     * @throws Exception
+     */
+    @Test(groups = {"wso2.mb", "queue"})
+    public void performQueuePurgeUnderLoadTestCase() throws Exception {
+        // Filling the queue which is purged
+        AndesJMSPublisherClientConfiguration fillPublisherConfig =
+                new AndesJMSPublisherClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, PURGE_QUEUE_NAME);
+        fillPublisherConfig.setNumberOfMessagesToSend(PURGE_MESSAGE_COUNT);
+        fillPublisherConfig.setPrintsPerMessageCount(PURGE_MESSAGE_COUNT / 10L);
+
+        AndesClient fillPublisherClient = new AndesClient(fillPublisherConfig, true);
+        fillPublisherClient.startClient();
+
+        long deadline = System.currentTimeMillis() + QUEUE_WAIT_TIMEOUT;
+        while (getMessageCount(PURGE_QUEUE_NAME) < PURGE_MESSAGE_COUNT && System.currentTimeMillis() < deadline) {
+            AndesClientUtils.sleepForInterval(1000L);
+        }
+
+        // Measuring live traffic without a purge
+        AndesClient baselineConsumerClient = createLiveConsumerClient();
+        baselineConsumerClient.startClient();
+
+        AndesClient baselinePublisherClient = createLivePublisherClient();
+        baselinePublisherClient.startClient();
+
+        AndesClientUtils.waitForMessagesAndShutdown(baselineConsumerClient, AndesClientConstants.DEFAULT_RUN_TIME);
+
+        // Starting live traffic for the purge
+        AndesClient liveConsumerClient = createLiveConsumerClient();
+        liveConsumerClient.startClient();
+
+        AndesClient livePublisherClient = createLivePublisherClient();
+        livePublisherClient.startClient();
+
+        // Purging while live traffic flows
+        long purgeStartTime = System.currentTimeMillis();
+        andesAdminClient.purgeQueue(PURGE_QUEUE_NAME);
+        long purgeRequestDuration = System.currentTimeMillis() - purgeStartTime;
+
+        deadline = System.currentTimeMillis() + QUEUE_WAIT_TIMEOUT;
+        long remainingMessageCount = getMessageCount(PURGE_QUEUE_NAME);
+        while (0 < remainingMessageCount && System.currentTimeMillis() < deadline) {
+            log.info("[PURGE] Queue:" + PURGE_QUEUE_NAME + " RemainingMessages:" + remainingMessageCount);
+            AndesClientUtils.sleepForInterval(1000L);
+            remainingMessageCount = getMessageCount(PURGE_QUEUE_NAME);
+        }
+        long purgeDuration = System.currentTimeMillis() - purgeStartTime;
+
+        AndesClientUtils.waitForMessagesAndShutdown(liveConsumerClient, AndesClientConstants.DEFAULT_RUN_TIME);
+
+        log.info("[PURGE] Messages:" + PURGE_MESSAGE_COUNT + " RequestDuration:" + purgeRequestDuration
+                 + "ms PurgeDuration:" + purgeDuration + "ms BaselineLiveConsumerTPS:"
+                 + baselineConsumerClient.getConsumerTPS() + " LiveConsumerTPS:" + liveConsumerClient.getConsumerTPS());
+
+        // Evaluating
+        Assert.assertEquals(fillPublisherClient.getSentMessageCount(), PURGE_MESSAGE_COUNT,
+                            "Message sending to purged queue failed.");
+        Assert.assertEquals(remainingMessageCount, 0L, "Purged queue still has messages.");
+        Assert.assertEquals(baselinePublisherClient.getSentMessageCount(), LIVE_MESSAGE_COUNT,
+                            "Message sending to live queue without a purge failed.");
+        Assert.assertEquals(baselineConsumerClient.getReceivedMessageCount(), LIVE_MESSAGE_COUNT,
+                            "Message receiving from live queue without a purge failed.");
+        Assert.assertEquals(livePublisherClient.getSentMessageCount(), LIVE_MESSAGE_COUNT,
+                            "Message sending to live queue failed.");
+        Assert.assertEquals(liveConsumerClient.getReceivedMessageCount(), LIVE_MESSAGE_COUNT,
+                            "Live traffic was interrupted by the purge.");
+    }
+
+    /**
+     * Delete the queues used by the test and log out from the admin service.
+     *
+     * @throws Exception
+     */
+    @AfterClass(alwaysRun = true)
+    public void cleanUp() throws Exception {
+        if (null != andesAdminClient.getQueueByName(PURGE_QUEUE_NAME)) {
+            andesAdminClient.deleteQueue(PURGE_QUEUE_NAME);
+        }
+        if (null != andesAdminClient.getQueueByName(LIVE_QUEUE_NAME)) {
+            andesAdminClient.deleteQueue(LIVE_QUEUE_NAME);
+        }
+        loginLogoutClient.logout();
+    }
+
+    /**
+     * Create a consumer for the live queue.
+     *
+     * @return the consumer client
+     * @throws Exception
+     */
+    private AndesClient createLiveConsumerClient() throws Exception {
+        AndesJMSConsumerClientConfiguration liveConsumerConfig =
+                new AndesJMSConsumerClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, LIVE_QUEUE_NAME);
+        liveConsumerConfig.setMaximumMessagesToReceived(LIVE_MESSAGE_COUNT);
+        liveConsumerConfig.setPrintsPerMessageCount(LIVE_MESSAGE_COUNT / 10L);
+        return new AndesClient(liveConsumerConfig, true);
+    }
+
+    /**
+     * Create a publisher for the live queue.
+     *
+     * @return the publisher client
+     * @throws Exception
+     */
+    private AndesClient createLivePublisherClient() throws Exception {
+        AndesJMSPublisherClientConfiguration livePublisherConfig =
+                new AndesJMSPublisherClientConfiguration(getAMQPPort(), ExchangeType.QUEUE, LIVE_QUEUE_NAME);
+        livePublisherConfig.setNumberOfMessagesToSend(LIVE_MESSAGE_COUNT);
+        livePublisherConfig.setPrintsPerMessageCount(LIVE_MESSAGE_COUNT / 10L);
+        return new AndesClient(livePublisherConfig, true);
+    }
+
+    /**
+     * Get the message count of a queue.
+     *
+     * @param queueName the queue name
+     * @return the message count, 0 if the queue does not exist
+     * @throws Exception
+     */
+    private long getMessageCount(String queueName) throws Exception {
+        Queue queue = andesAdminClient.getQueueByName(queueName);
+        return null == queue ? 0L : queue.getMessageCount();
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.amqp.load;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.carbon.integration.common.utils.LoginLogoutClient;
+import org.wso2.mb.integration.common.clients.operations.clients.AndesAdminClient;
+import org.wso2.mb.integration.common.clients.operations.utils.JMSClientHelper;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.xml.xpath.XPathExpressionException;
+
+/**
+ * Load test case for the time taken by the server to start delivering messages after a restart
+ * when many destinations exist. Queues and durable topic subscriptions are created, a message is
+ * left in a probe queue and the server is restarted. The restart duration and the time from the
+ * restart request until the waiting message is received are logged for a growing number of
+ * destinations. The restart call returns only once the server has fully started, so both figures
+ * include the recovery of the destinations.
+ * H2 in-memory mode will not work as restarting the server will not hold the destinations.
+ */
+public class ServerRestartTimeToFirstMessageTestCase extends MBIntegrationBaseTest {
+
+    /**
+     * Maximum time to wait for the waiting message after the restart
+     */
+    private static final long RECEIVE_TIMEOUT = 300000L;
+
+    private static final String QUEUE_NAME_PREFIX = "restartColdStartQueue";
+
+    private static final String TOPIC_NAME = "restartColdStartTopic";
+
+    private static final String SUBSCRIPTION_ID_PREFIX = "restartColdStartSub";
+
+    private static final String PROBE_QUEUE_NAME = "restartColdStartProbeQueue";
+
+    private LoginLogoutClient loginLogoutClient;
+
+    /**
+     * Initialize the test as super tenant admin.
+     *
+     * @throws XPathExpressionException
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init() throws XPathExpressionException {
+        super.init(TestUserMode.SUPER_TENANT_ADMIN);
+    }
+
+    /**
+     * Number of queues and number of durable topic subscriptions to create.
+     *
+     * @return destination counts
+     */
+    @DataProvider(name = "destinationCounts")
+    public static Object[][] destinationCounts() {
+        return new Object[][]{
+                {100},
+                {1000},
+                {10000}
+        };
+    }
+
+    /**
+     * 1. Create the given number of queues and durable topic subscriptions.
+     * 2. Publish a message to a probe queue.
+     * 3. Restart the server and log the time taken.
+     * 4. Subscribe to the probe queue and log the time from the restart request until the message
+     * is received.
+     * 5. Remove the created queues and durable topic subscriptions.
+     *
+     * @param destinationCount number of queues and number of durable topic subscriptions
+     * @throws Exception
+     */
+    @Test(groups = {"wso2.mb", "durableTopic"}, dataProvider = "destinationCounts")
+    public void performServerRestartTimeToFirstMessageTestCase(int destinationCount) throws Exception {
+        Connection connection = createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            for (int i = 0; i < destinationCount; i++) {
+                session.createConsumer(session.createQueue(QUEUE_NAME_PREFIX + i)).close();
+                session.createDurableSubscriber(session.createTopic(TOPIC_NAME), SUBSCRIPTION_ID_PREFIX + i).close();
+            }
+
+            MessageProducer producer = session.createProducer(session.createQueue(PROBE_QUEUE_NAME));
+            producer.send(session.createTextMessage("Restart probe message"));
+        } finally {
+            connection.close();
+        }
+
+        // Restarting the server
+        long restartStartTime = System.currentTimeMillis();
+        super.restartServer();
+        long restartDuration = System.currentTimeMillis() - restartStartTime;
+
+        // Receiving the message waiting in the probe queue
+        connection = createConnection();
+        Message message;
+        long timeToFirstMessage;
+        try {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = session.createConsumer(session.createQueue(PROBE_QUEUE_NAME));
+            message = consumer.receive(RECEIVE_TIMEOUT);
+            timeToFirstMessage = System.currentTimeMillis() - restartStartTime;
+        } finally {
+            connection.close();
+        }
+
+        log.info("[COLD-START] Queues:" + destinationCount + " DurableSubscriptions:" + destinationCount
+                 + " RestartDuration:" + restartDuration + "ms TimeToFirstMessage:" + timeToFirstMessage + "ms");
+
+        removeDestinations(destinationCount);
+
+        // Evaluating
+        Assert.assertNotNull(message, "Message was not received after the restart.");
+    }
+
+    /**
+     * Delete the probe queue and log out.
+     *
+     * @throws Exception
+     */
+    @AfterClass(alwaysRun = true)
+    public void cleanUp() throws Exception {
+        loginLogoutClient = new LoginLogoutClient(super.automationContext);
+        AndesAdminClient andesAdminClient = new AndesAdminClient(super.backendURL, loginLogoutClient.login());
+
+        if (null != andesAdminClient.getQueueByName(PROBE_QUEUE_NAME)) {
+            andesAdminClient.deleteQueue(PROBE_QUEUE_NAME);
+        }
+        loginLogoutClient.logout();
+    }
+
+    /**
+     * Create a connection to the broker as the admin user. The same client ID is used for every
+     * connection so that the durable topic subscriptions can be removed later.
+     *
+     * @return connection to the broker
+     * @throws NamingException
+     * @throws JMSException
+     * @throws XPathExpressionException
+     */
+    private Connection createConnection() throws NamingException, JMSException, XPathExpressionException {
+        InitialContext initialContext = JMSClientHelper.getInitialContextForQueue(
+                "admin", "admin", "localhost", getAMQPPort().toString(), PROBE_QUEUE_NAME);
+        ConnectionFactory connectionFactory =
+                (ConnectionFactory) initialContext.lookup(JMSClientHelper.QUEUE_CONNECTION_FACTORY);
+
+        return connectionFactory.createConnection();
+    }
+
+    /**
+     * Unsubscribe the durable topic subscriptions and delete the queues created by a test run.
+     *
+     * @param destinationCount number of queues and number of durable topic subscriptions
+     * @throws Exception
+     */
+    private void removeDestinations(int destinationCount) throws Exception {
+        Connection connection = createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            for (int i = 0; i < destinationCount; i++) {
+                session.unsubscribe(SUBSCRIPTION_ID_PREFIX + i);
+            }
+        } finally {
+            connection.close();
+        }
+
+        loginLogoutClient = new LoginLogoutClient(super.automationContext);
+        AndesAdminClient andesAdminClient = new AndesAdminClient(super.backendURL, loginLogoutClient.login());
+        for (int i = 0; i < destinationCount; i++) {
+            if (null != andesAdminClient.getQueueByName(QUEUE_NAME_PREFIX + i)) {
+                andesAdminClient.deleteQueue(QUEUE_NAME_PREFIX + i);
+            }
+        }
+        loginLogoutClient.logout();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.amqp.load;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+
+
+/**
+ * Load test case for delivering large messages to many subscribers at the same time. Each 1MB
+ * message published to the topic is delivered concurrently to every subscriber, so the number of
+ * large deliveries in progress grows with the subscriber count. The used heap of the broker is
+ * read through JMX after a garbage collection before and after delivery, and the peak heap usage
+ * during delivery is read from the heap memory pools without forcing a garbage collection. Both
+ * are logged with the consumer throughput for each subscriber count. The heap retained during delivery should not grow with the number of
+ * concurrent deliveries.
+ */
+public class TopicConcurrentLargeMessageDeliveryTestCase extends MBIntegrationBaseTest {
+
+    /**
+     * Number of 1MB messages to send for each subscriber count
+     */
+    private static final long SEND_COUNT = 200L;
+
+    /**
+     * Maximum time to wait for every subscriber to receive every message
+     */
+    private static final long DELIVERY_WAIT_TIMEOUT = 600000L;
+
+    private static final String TOPIC_NAME_PREFIX = "concurrentLargeMessageTopic";
+
+    /**
+     * Initialize the test as super tenant user.
+     *
+     * @throws Exception
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init() throws Exception {
+        super.init(TestUserMode.SUPER_TENANT_USER);
+    }
+
+    /**
+     * Number of subscribers receiving every large message.
+     *
+     * @return subscriber counts
+     */
+    @DataProvider(name = "subscriberCounts")
+    public static Object[][] subscriberCounts() {
+        return new Object[][]{
+                {1},
+                {10},
+                {50}
+        };
+    }
+
+    /**
+     * 1. Start the given number of subscribers on a topic.
+     * 2. Publish 200 messages of 1MB to the topic.
+     * 3. Read the used broker heap before and after delivery and the peak heap usage during it.
+     * 4. Log the heap samples and the consumer throughput and verify every subscriber received
+     * every message.
+     *
+     * @param subscriberCount number of subscribers
+     * @throws Exception
+     */
+    @Test(groups = {"wso2.mb", "topic"}, dataProvider = "subscriberCounts")
+    public void performTopicConcurrentLargeMessageDeliveryTestCase(int subscriberCount) throws Exception {
+        String topicName = TOPIC_NAME_PREFIX + subscriberCount;
+
+        AndesJMSConsumerClientConfiguration consumerConfig =
+                new AndesJMSConsumerClientConfiguration(getAMQPPort(), ExchangeType.TOPIC, topicName);
+        consumerConfig.setMaximumMessagesToReceived(SEND_COUNT);
+        consumerConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+
+        AndesJMSPublisherClientConfiguration publisherConfig =
+                new AndesJMSPublisherClientConfiguration(getAMQPPort(), ExchangeType.TOPIC, topicName);
+        publisherConfig.setNumberOfMessagesToSend(SEND_COUNT);
+        publisherConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+        publisherConfig.setReadMessagesFromFilePath(AndesClientConstants.MESSAGE_CONTENT_INPUT_FILE_PATH_1MB);
+
+        long expectedCount = SEND_COUNT * subscriberCount;
+        long heapBeforeDelivery = getBrokerUsedHeapAfterGC();
+        resetBrokerHeapPeakUsage();
+
+        // Creating clients
+        AndesClient consumerClient = new AndesClient(consumerConfig, subscriberCount, true);
+        consumerClient.startClient();
+
+        AndesClient publisherClient = new AndesClient(publisherConfig, true);
+        publisherClient.startClient();
+
+        long deadline = System.currentTimeMillis() + DELIVERY_WAIT_TIMEOUT;
+        while (consumerClient.getReceivedMessageCount() < expectedCount && System.currentTimeMillis() < deadline) {
+            AndesClientUtils.sleepForInterval(100L);
+        }
+        AndesClientUtils.shutdownClient(consumerClient);
+
+        // Read without a garbage collection so that delivery is not disturbed by the measurement
+        long peakHeapDuringDelivery = getBrokerPeakHeapUsage();
+
+        long heapAfterDelivery = getBrokerUsedHeapAfterGC();
+
+        log.info("[LARGE-DELIVERY] Subscribers:" + subscriberCount + " Messages:" + SEND_COUNT
+                 + " MessageSize:1MB ConsumerTPS:" + consumerClient.getConsumerTPS() + " HeapBeforeDelivery:"
+                 + heapBeforeDelivery + " PeakHeapDuringDelivery:" + peakHeapDuringDelivery
+                 + " HeapAfterDelivery:" + heapAfterDelivery);
+
+        // Evaluating
+        Assert.assertEquals(publisherClient.getSentMessageCount(), SEND_COUNT, "Message sending failed.");
+        Assert.assertEquals(consumerClient.getReceivedMessageCount(), expectedCount, "Message receiving failed.");
+    }
+}
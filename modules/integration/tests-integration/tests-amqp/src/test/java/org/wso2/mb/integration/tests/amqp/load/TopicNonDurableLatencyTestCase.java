@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.amqp.load;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+
+/**
+ * Load test case for publish to delivery latency of non durable topic subscriptions. Messages are
+ * published at a steady rate with persistent and with non persistent delivery mode and the
+ * average latency seen by the subscriber is logged for both. Non persistent messages to non
+ * durable subscribers do not need the store, so their latency should be lower.
+ */
+public class TopicNonDurableLatencyTestCase extends MBIntegrationBaseTest {
+
+    /**
+     * Message count sent for each delivery mode
+     */
+    private static final long SEND_COUNT = 10000L;
+
+    /**
+     * Delay between published messages in milliseconds, keeping the load steady so latency is not
+     * dominated by queueing
+     */
+    private static final long PUBLISHER_DELAY = 1L;
+
+    private static final String TOPIC_NAME_PREFIX = "nonDurableLatencyTopic";
+
+    /**
+     * Initialize the test as super tenant user.
+     *
+     * @throws Exception
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init() throws Exception {
+        super.init(TestUserMode.SUPER_TENANT_USER);
+    }
+
+    /**
+     * Delivery modes to publish with.
+     *
+     * @return whether messages are persistent
+     */
+    @DataProvider(name = "persistentDelivery")
+    public static Object[][] persistentDelivery() {
+        return new Object[][]{
+                {true},
+                {false}
+        };
+    }
+
+    /**
+     * 1. Start a non durable subscriber on a topic.
+     * 2. Publish 10000 messages at a steady rate with the given delivery mode.
+     * 3. Log the average latency and verify every message was received.
+     *
+     * @param persistentDelivery whether messages are published as persistent
+     * @throws Exception
+     */
+    @Test(groups = {"wso2.mb", "topic"}, dataProvider = "persistentDelivery")
+    public void performTopicNonDurableLatencyTestCase(boolean persistentDelivery) throws Exception {
+        String topicName = TOPIC_NAME_PREFIX + (persistentDelivery ? "Persistent" : "NonPersistent");
+
+        AndesJMSConsumerClientConfiguration consumerConfig =
+                new AndesJMSConsumerClientConfiguration(getAMQPPort(), ExchangeType.TOPIC, topicName);
+        consumerConfig.setMaximumMessagesToReceived(SEND_COUNT);
+        consumerConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+
+        AndesJMSPublisherClientConfiguration publisherConfig =
+                new AndesJMSPublisherClientConfiguration(getAMQPPort(), ExchangeType.TOPIC, topicName);
+        publisherConfig.setNumberOfMessagesToSend(SEND_COUNT);
+        publisherConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+        publisherConfig.setRunningDelay(PUBLISHER_DELAY);
+        publisherConfig.setPersistentDelivery(persistentDelivery);
+
+        // Creating clients
+        AndesClient consumerClient = new AndesClient(consumerConfig, true);
+        consumerClient.startClient();
+
+        AndesClient publisherClient = new AndesClient(publisherConfig, true);
+        publisherClient.startClient();
+
+        AndesClientUtils.waitForMessagesAndShutdown(consumerClient, AndesClientConstants.DEFAULT_RUN_TIME);
+
+        log.info("[NON-DURABLE] PersistentDelivery:" + persistentDelivery + " Messages:" + SEND_COUNT
+                 + " AverageLatency:" + consumerClient.getAverageLatency() + " ConsumerTPS:"
+                 + consumerClient.getConsumerTPS());
+
+        // Evaluating
+        Assert.assertEquals(publisherClient.getSentMessageCount(), SEND_COUNT, "Message sending failed.");
+        Assert.assertEquals(consumerClient.getReceivedMessageCount(), SEND_COUNT, "Message receiving failed.");
+    }
+}
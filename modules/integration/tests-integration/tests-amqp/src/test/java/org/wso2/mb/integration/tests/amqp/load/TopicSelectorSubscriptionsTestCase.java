@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.amqp.load;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.JMSHeaderPropertyType;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Load test case to measure selector evaluation cost on a topic with a growing number of
+ * selector bearing subscriptions. Every message carries the same properties and is evaluated
+ * against every subscription, while only a single probe subscription matches. The throughput
+ * seen by the probe is logged for each subscription count.
+ */
+public class TopicSelectorSubscriptionsTestCase extends MBIntegrationBaseTest {
+
+    /**
+     * Message count sent for each subscription count
+     */
+    private static final long SEND_COUNT = 10000L;
+
+    /**
+     * Expected message count for the probe subscription
+     */
+    private static final long EXPECTED_COUNT = SEND_COUNT;
+
+    private static final String TOPIC_NAME_PREFIX = "selectorSubscriptionsTopic";
+
+    /**
+     * Initialize the test as super tenant user.
+     *
+     * @throws Exception
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init() throws Exception {
+        super.init(TestUserMode.SUPER_TENANT_USER);
+    }
+
+    /**
+     * Number of non matching selector subscriptions created on the topic.
+     *
+     * @return subscription counts
+     */
+    @DataProvider(name = "selectorSubscriptionCounts")
+    public static Object[][] selectorSubscriptionCounts() {
+        return new Object[][]{
+                {1},
+                {100},
+                {1000}
+        };
+    }
+
+    /**
+     * 1. Create the given number of topic subscribers whose selectors never match.
+     * 2. Create a probe subscriber whose selector matches every message.
+     * 3. Publish messages carrying a string and an integer property.
+     * 4. Verify the probe receives every message, none of the other subscribers receive any and
+     * log the probe throughput.
+     *
+     * @param subscriptionCount number of non matching selector subscriptions
+     * @throws Exception
+     */
+    @Test(groups = {"wso2.mb", "topic"}, dataProvider = "selectorSubscriptionCounts")
+    public void performTopicSelectorSubscriptionsTestCase(int subscriptionCount) throws Exception {
+        String topicName = TOPIC_NAME_PREFIX + subscriptionCount;
+
+        AndesJMSConsumerClientConfiguration consumerConfig =
+                new AndesJMSConsumerClientConfiguration(getAMQPPort(), ExchangeType.TOPIC, topicName);
+        consumerConfig.setMaximumMessagesToReceived(EXPECTED_COUNT);
+        consumerConfig.setPrintsPerMessageCount(EXPECTED_COUNT / 10L);
+
+        // Creating subscribers which never match a published message
+        List<AndesClient> fillerClients = new ArrayList<>(subscriptionCount);
+        for (int i = 0; i < subscriptionCount; i++) {
+            AndesJMSConsumerClientConfiguration fillerConfig = consumerConfig.clone();
+            fillerConfig.setSelectors("deviceId = 'device" + i + "' AND temperature > 100");
+
+            AndesClient fillerClient = new AndesClient(fillerConfig, true);
+            fillerClient.startClient();
+            fillerClients.add(fillerClient);
+        }
+
+        // Creating the probe subscriber
+        AndesJMSConsumerClientConfiguration probeConfig = consumerConfig.clone();
+        probeConfig.setSelectors("deviceId = 'probe' AND temperature > 100");
+
+        AndesClient probeClient = new AndesClient(probeConfig, true);
+        probeClient.startClient();
+
+        AndesJMSPublisherClientConfiguration publisherConfig =
+                new AndesJMSPublisherClientConfiguration(getAMQPPort(), ExchangeType.TOPIC, topicName);
+        publisherConfig.setNumberOfMessagesToSend(SEND_COUNT);
+        publisherConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+        publisherConfig.setJMSHeaderProperty("deviceId", "probe", JMSHeaderPropertyType.STRING);
+        publisherConfig.setJMSHeaderProperty("temperature", 120, JMSHeaderPropertyType.INTEGER);
+
+        AndesClient publisherClient = new AndesClient(publisherConfig, true);
+        publisherClient.startClient();
+
+        AndesClientUtils.waitForMessagesAndShutdown(probeClient, AndesClientConstants.DEFAULT_RUN_TIME);
+
+        log.info("[SELECTOR] SelectorSubscriptions:" + (subscriptionCount + 1) + " Messages:" + SEND_COUNT
+                 + " ProbeTPS:" + probeClient.getConsumerTPS());
+
+        long fillerReceivedCount = 0L;
+        for (AndesClient fillerClient : fillerClients) {
+            fillerReceivedCount = fillerReceivedCount + fillerClient.getReceivedMessageCount();
+            AndesClientUtils.shutdownClient(fillerClient);
+        }
+
+        // Evaluating
+        Assert.assertEquals(publisherClient.getSentMessageCount(), SEND_COUNT, "Message sending failed.");
+        Assert.assertEquals(probeClient.getReceivedMessageCount(), EXPECTED_COUNT,
+                            "Message receiving failed for the matching selector.");
+        Assert.assertEquals(fillerReceivedCount, 0L, "Messages were delivered to non matching selectors.");
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.amqp.load;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.carbon.integration.common.utils.mgt.ServerConfigurationManager;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.clients.operations.utils.JMSAcknowledgeMode;
+import org.wso2.mb.integration.common.utils.backend.ConfigurationEditor;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Load test case to measure how a single slow subscriber on a shared topic affects the fast
+ * subscribers of the same topic under each topic message delivery strategy. The time taken for
+ * the fast subscribers to receive every message and the number of messages the slow subscriber
+ * received are logged for each strategy.
+ */
+public class TopicSlowSubscriberDeliveryTestCase extends MBIntegrationBaseTest {
+
+    /**
+     * Message count sent for each strategy
+     */
+    private static final long SEND_COUNT = 2000L;
+
+    /**
+     * Number of subscribers consuming without delay
+     */
+    private static final int FAST_SUBSCRIBER_COUNT = 3;
+
+    /**
+     * Processing delay of the slow subscriber per message in milliseconds
+     */
+    private static final long SLOW_SUBSCRIBER_DELAY = 50L;
+
+    /**
+     * Maximum time to wait for the fast subscribers to receive all messages
+     */
+    private static final long FAST_DELIVERY_TIMEOUT = 300000L;
+
+    private static final String TOPIC_NAME = "slowSubscriberDeliveryTopic";
+
+    /**
+     * Initialize the test as super tenant user.
+     *
+     * @throws Exception
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init() throws Exception {
+        super.init(TestUserMode.SUPER_TENANT_USER);
+    }
+
+    /**
+     * Topic message delivery strategies to compare.
+     *
+     * @return delivery strategy names
+     */
+    @DataProvider(name = "deliveryStrategies")
+    public static Object[][] deliveryStrategies() {
+        return new Object[][]{
+                {"SLOWEST_SUB_RATE"},
+                {"DISCARD_ALLOWED"}
+        };
+    }
+
+    /**
+     * 1. Restart the server with the given topic message delivery strategy.
+     * 2. Start 3 subscribers without delay and 1 subscriber with a 50 millisecond delay per
+     * message on the same topic.
+     * 3. Publish 2000 messages and measure the time taken for the fast subscribers to receive them.
+     * 4. Verify every fast subscriber received all messages and log the slow subscriber progress.
+     *
+     * @param deliveryStrategy topic message delivery strategy
+     * @throws Exception
+     */
+    @Test(groups = {"wso2.mb", "topic"}, dataProvider = "deliveryStrategies")
+    public void performTopicSlowSubscriberDeliveryTestCase(String deliveryStrategy) throws Exception {
+        super.serverManager = new ServerConfigurationManager(automationContext);
+        String defaultMBConfigurationPath = ServerConfigurationManager.getCarbonHome() +
+                File.separator + "repository" + File.separator + "conf" + File.separator + "broker.xml";
+
+        ConfigurationEditor configurationEditor = new ConfigurationEditor(defaultMBConfigurationPath);
+        configurationEditor.updateProperty(AndesConfiguration.PERFORMANCE_TUNING_TOPIC_MESSAGE_DELIVERY_STRATEGY,
+                                           deliveryStrategy);
+        configurationEditor.applyUpdatedConfigurationAndRestartServer(serverManager);
+
+        AndesJMSConsumerClientConfiguration fastConsumerConfig =
+                new AndesJMSConsumerClientConfiguration(getAMQPPort(), ExchangeType.TOPIC, TOPIC_NAME);
+        fastConsumerConfig.setAcknowledgeMode(JMSAcknowledgeMode.AUTO_ACKNOWLEDGE);
+        fastConsumerConfig.setMaximumMessagesToReceived(SEND_COUNT);
+        fastConsumerConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+
+        AndesJMSConsumerClientConfiguration slowConsumerConfig = fastConsumerConfig.clone();
+        slowConsumerConfig.setRunningDelay(SLOW_SUBSCRIBER_DELAY);
+
+        List<AndesClient> fastConsumerClients = new ArrayList<>(FAST_SUBSCRIBER_COUNT);
+        for (int i = 0; i < FAST_SUBSCRIBER_COUNT; i++) {
+            AndesClient fastConsumerClient = new AndesClient(fastConsumerConfig.clone(), true);
+            fastConsumerClient.startClient();
+            fastConsumerClients.add(fastConsumerClient);
+        }
+
+        AndesClient slowConsumerClient = new AndesClient(slowConsumerConfig, true);
+        slowConsumerClient.startClient();
+
+        AndesJMSPublisherClientConfiguration publisherConfig =
+                new AndesJMSPublisherClientConfiguration(getAMQPPort(), ExchangeType.TOPIC, TOPIC_NAME);
+        publisherConfig.setNumberOfMessagesToSend(SEND_COUNT);
+        publisherConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+
+        AndesClient publisherClient = new AndesClient(publisherConfig, true);
+        long publishStartTime = System.currentTimeMillis();
+        publisherClient.startClient();
+
+        // Waiting for the fast subscribers only
+        long deadline = publishStartTime + FAST_DELIVERY_TIMEOUT;
+        while (!isAllMessagesReceived(fastConsumerClients) && System.currentTimeMillis() < deadline) {
+            AndesClientUtils.sleepForInterval(100L);
+        }
+        long fastDeliveryDuration = System.currentTimeMillis() - publishStartTime;
+        long slowReceivedAtFastCompletion = slowConsumerClient.getReceivedMessageCount();
+
+        AndesClientUtils.waitForMessagesAndShutdown(slowConsumerClient, AndesClientConstants.DEFAULT_RUN_TIME);
+        for (AndesClient fastConsumerClient : fastConsumerClients) {
+            AndesClientUtils.shutdownClient(fastConsumerClient);
+        }
+
+        log.info("[SLOW-SUB] Strategy:" + deliveryStrategy + " Messages:" + SEND_COUNT + " FastDeliveryDuration:"
+                 + fastDeliveryDuration + "ms SlowReceivedAtFastCompletion:" + slowReceivedAtFastCompletion
+                 + " SlowReceivedTotal:" + slowConsumerClient.getReceivedMessageCount());
+
+        // Evaluating
+        Assert.assertEquals(publisherClient.getSentMessageCount(), SEND_COUNT, "Message sending failed.");
+        for (AndesClient fastConsumerClient : fastConsumerClients) {
+            Assert.assertEquals(fastConsumerClient.getReceivedMessageCount(), SEND_COUNT,
+                                "Message receiving failed for a fast subscriber.");
+        }
+    }
+
+    /**
+     * Restore the broker configuration changed for the delivery strategy.
+     *
+     * @throws Exception
+     */
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws Exception {
+        super.serverManager.restoreToLastConfiguration(true);
+    }
+
+    /**
+     * Check whether every given consumer received all messages.
+     *
+     * @param consumerClients the consumers
+     * @return true if all consumers received {@value #SEND_COUNT} messages
+     */
+    private boolean isAllMessagesReceived(List<AndesClient> consumerClients) {
+        for (AndesClient consumerClient : consumerClients) {
+            if (consumerClient.getReceivedMessageCount() < SEND_COUNT) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.mqtt.load;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.carbon.integration.common.admin.client.UserManagementClient;
+import org.wso2.carbon.integration.common.utils.LoginLogoutClient;
+import org.wso2.carbon.integration.common.utils.exceptions.AutomationUtilException;
+import org.wso2.carbon.integration.common.utils.mgt.ServerConfigurationManager;
+import org.wso2.carbon.registry.resource.stub.ResourceAdminServiceExceptionException;
+import org.wso2.carbon.um.ws.api.stub.UserStoreExceptionException;
+import org.wso2.carbon.user.mgt.stub.UserAdminUserAdminException;
+import org.wso2.mb.integration.common.clients.ClientMode;
+import org.wso2.mb.integration.common.clients.MQTTClientConnectionConfiguration;
+import org.wso2.mb.integration.common.clients.MQTTClientEngine;
+import org.wso2.mb.integration.common.clients.MQTTConstants;
+import org.wso2.mb.integration.common.clients.QualityOfService;
+import org.wso2.mb.integration.common.utils.backend.ConfigurationEditor;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+import org.wso2.mb.integration.tests.mqtt.functional.util.RemoteAuthorizationManagerServiceClient;
+import org.wso2.mb.integration.tests.mqtt.functional.util.ResourceAdminServiceClient;
+
+import javax.xml.xpath.XPathExpressionException;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the cost of authentication and authorization when many publishers connect at once.
+ * <p/>
+ * User authentication and authorization are enabled for MQTT and a fleet of publishers connects with the same
+ * user, each checked for the connect and publish permissions, and sends a few messages to a topic. This is repeated
+ * for a number of rounds so the first round, where the user store is consulted cold, can be compared with the
+ * following rounds for the same user and topic. The time taken for each round is logged.
+ */
+public class AuthorizedConnectPublishLoadTestCase extends MBIntegrationBaseTest {
+
+    private static final String USER_NAME = "authload-mqtt";
+
+    private static final String PASSWORD = "passWord1@";
+
+    private static final String CONNECT_ROLE = "mqtt-authload-connect";
+
+    private static final String PUBLISH_ROLE = "mqtt-authload-publish";
+
+    private static final String SUBSCRIBE_ROLE = "mqtt-authload-subscribe";
+
+    private static final String TOPIC = "authload/test";
+
+    /**
+     * Number of publishers connecting in each round
+     */
+    private static final int PUBLISHER_COUNT = 500;
+
+    /**
+     * Number of messages sent by each publisher
+     */
+    private static final int MESSAGES_PER_PUBLISHER = 10;
+
+    /**
+     * Number of connect rounds
+     */
+    private static final int ROUND_COUNT = 3;
+
+    /**
+     * Maximum time to wait for the messages of a round to be received
+     */
+    private static final long DELIVERY_WAIT_TIMEOUT = 300000L;
+
+    private UserManagementClient userMgtClient;
+
+    /**
+     * Initialize super class.
+     *
+     * @throws Exception
+     */
+    @BeforeClass
+    public void prepare() throws Exception {
+        super.init(TestUserMode.SUPER_TENANT_USER);
+    }
+
+    /**
+     * Enable MQTT authentication and authorization and create a user allowed to connect, publish and subscribe to
+     * the test topic.
+     */
+    @BeforeClass(dependsOnMethods = "prepare")
+    public void setupConfiguration() throws XPathExpressionException, IOException, ConfigurationException,
+            AutomationUtilException, UserAdminUserAdminException, UserStoreExceptionException,
+            ResourceAdminServiceExceptionException {
+
+        super.serverManager = new ServerConfigurationManager(automationContext);
+        String defaultMBConfigurationPath = ServerConfigurationManager.getCarbonHome() +
+                File.separator + "repository" + File.separator + "conf" + File.separator + "broker.xml";
+
+        ConfigurationEditor configurationEditor = new ConfigurationEditor(defaultMBConfigurationPath);
+
+        configurationEditor.updateProperty(AndesConfiguration.TRANSPORTS_MQTT_USER_AUTHENTICATION, "REQUIRED");
+        configurationEditor.updateProperty(AndesConfiguration.TRANSPORTS_MQTT_USER_AUTHORIZATION, "REQUIRED");
+        configurationEditor.applyUpdatedConfigurationAndRestartServer(serverManager);
+
+        LoginLogoutClient loginLogoutClient = new LoginLogoutClient(automationContext);
+        String sessionCookie = loginLogoutClient.login();
+        userMgtClient = new UserManagementClient(backendURL, sessionCookie);
+        ResourceAdminServiceClient resourceAdminServiceClient =
+                new ResourceAdminServiceClient(backendURL, sessionCookie);
+        RemoteAuthorizationManagerServiceClient remoteAuthorizationManagerServiceClient =
+                new RemoteAuthorizationManagerServiceClient(backendURL, sessionCookie);
+
+        resourceAdminServiceClient.addCollection("/_system/governance/permission/admin/mqtt", "connect", "", "");
+        resourceAdminServiceClient.addCollection("/_system/governance/permission/admin/mqtt/topic/authload",
+                "test", "", "");
+        String topicPermission = "/permission/admin/mqtt/topic/" + TOPIC;
+
+        userMgtClient.addUser(USER_NAME, PASSWORD, null, "default");
+        String users[] = new String[]{USER_NAME};
+        userMgtClient.addRole(CONNECT_ROLE, users, null);
+        userMgtClient.addRole(PUBLISH_ROLE, users, null);
+        userMgtClient.addRole(SUBSCRIBE_ROLE, users, null);
+
+        remoteAuthorizationManagerServiceClient.authorizeRole(CONNECT_ROLE, "/permission/admin/mqtt/connect",
+                "authorize");
+        remoteAuthorizationManagerServiceClient.authorizeRole(PUBLISH_ROLE, topicPermission, "publish");
+        remoteAuthorizationManagerServiceClient.authorizeRole(SUBSCRIBE_ROLE, topicPermission, "subscribe");
+    }
+
+    /**
+     * 1. Subscribe to the test topic with the authorized user.
+     * 2. Connect {@value #PUBLISHER_COUNT} publishers with the same user, each sending
+     * {@value #MESSAGES_PER_PUBLISHER} messages to the topic.
+     * 3. Log the time taken for the messages of the round to be received.
+     * 4. Repeat {@value #ROUND_COUNT} times and verify every message was received.
+     *
+     * @throws MqttException
+     * @throws XPathExpressionException
+     * @throws InterruptedException
+     */
+    @Test(groups = {"wso2.mb", "mqtt"}, description = "Authorized connect and publish load test")
+    public void performAuthorizedConnectPublishLoadTestCase()
+            throws MqttException, XPathExpressionException, InterruptedException {
+        int messagesPerRound = PUBLISHER_COUNT * MESSAGES_PER_PUBLISHER;
+
+        MQTTClientEngine subscriberEngine = new MQTTClientEngine();
+        MQTTClientConnectionConfiguration subscriberConfiguration =
+                subscriberEngine.getConfigurations(automationContext);
+        subscriberConfiguration.setBrokerUserName(USER_NAME);
+        subscriberConfiguration.setBrokerPassword(PASSWORD);
+        subscriberEngine.createSubscriberConnection(subscriberConfiguration, TOPIC, QualityOfService.LEAST_ONCE,
+                false, ClientMode.BLOCKING);
+
+        for (int round = 1; round <= ROUND_COUNT; round++) {
+            int expectedCount = messagesPerRound * round;
+
+            MQTTClientEngine publisherEngine = new MQTTClientEngine();
+            MQTTClientConnectionConfiguration publisherConfiguration =
+                    publisherEngine.getConfigurations(automationContext);
+            publisherConfiguration.setBrokerUserName(USER_NAME);
+            publisherConfiguration.setBrokerPassword(PASSWORD);
+
+            long roundStartTime = System.currentTimeMillis();
+            for (int i = 0; i < PUBLISHER_COUNT; i++) {
+                publisherEngine.createPublisherConnection(publisherConfiguration, TOPIC, QualityOfService.LEAST_ONCE,
+                        MQTTConstants.TEMPLATE_PAYLOAD, MESSAGES_PER_PUBLISHER, ClientMode.ASYNC);
+            }
+
+            long deadline = roundStartTime + DELIVERY_WAIT_TIMEOUT;
+            while (subscriberEngine.getReceivedMessageCount() < expectedCount
+                   && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(100L);
+            }
+            long roundDuration = System.currentTimeMillis() - roundStartTime;
+            publisherEngine.shutdown();
+
+            log.info("[AUTH-LOAD] Round:" + round + " Publishers:" + PUBLISHER_COUNT + " MessagesPerPublisher:"
+                     + MESSAGES_PER_PUBLISHER + " Duration:" + roundDuration + "ms ConnectionsPerSecond:"
+                     + (PUBLISHER_COUNT * 1000L / Math.max(roundDuration, 1L)));
+
+            Assert.assertEquals(publisherEngine.getSentMessageCount(), messagesPerRound,
+                    "Message sending failed in round " + round);
+        }
+
+        int receivedCount = subscriberEngine.getReceivedMessageCount();
+        subscriberEngine.shutdown();
+
+        Assert.assertEquals(receivedCount, messagesPerRound * ROUND_COUNT, "Message receiving failed.");
+    }
+
+    /**
+     * Remove the test user and roles and restore to the previous configurations.
+     *
+     * @throws Exception
+     */
+    @AfterClass(alwaysRun = true)
+    public void tearDown() throws Exception {
+        if (null != userMgtClient) {
+            userMgtClient.deleteRole(CONNECT_ROLE);
+            userMgtClient.deleteRole(PUBLISH_ROLE);
+            userMgtClient.deleteRole(SUBSCRIBE_ROLE);
+            userMgtClient.deleteUser(USER_NAME);
+        }
+        super.serverManager.restoreToLastConfiguration(true);
+    }
+}
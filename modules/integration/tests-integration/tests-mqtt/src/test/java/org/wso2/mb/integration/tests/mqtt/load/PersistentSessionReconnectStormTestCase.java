@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.mqtt.load;
+
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.mb.integration.common.clients.AndesMQTTClient;
+import org.wso2.mb.integration.common.clients.ClientMode;
+import org.wso2.mb.integration.common.clients.MQTTClientConnectionConfiguration;
+import org.wso2.mb.integration.common.clients.MQTTClientEngine;
+import org.wso2.mb.integration.common.clients.MQTTConstants;
+import org.wso2.mb.integration.common.clients.QualityOfService;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+
+import javax.xml.xpath.XPathExpressionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure how long a fleet of devices with persistent sessions takes to reconnect at once.
+ * <p/>
+ * Every device subscribes with clean session set to false and disconnects, messages are published while the
+ * devices are away and then all devices reconnect together. Each reconnect has to restore the session and its
+ * subscription from the store, so the time taken to reconnect every device and to deliver the queued messages is
+ * logged for each device count.
+ */
+public class PersistentSessionReconnectStormTestCase extends MBIntegrationBaseTest {
+
+    /**
+     * Number of messages published while the devices are disconnected
+     */
+    private static final int QUEUED_MESSAGE_COUNT = 10;
+
+    /**
+     * Number of threads reconnecting the devices together
+     */
+    private static final int RECONNECT_THREAD_COUNT = 50;
+
+    /**
+     * Maximum time to wait for the devices to reconnect and to receive the queued messages
+     */
+    private static final long RECONNECT_WAIT_TIMEOUT = 600000L;
+
+    /**
+     * Initialize super class.
+     *
+     * @throws Exception
+     */
+    @BeforeClass
+    public void prepare() throws Exception {
+        super.init(TestUserMode.SUPER_TENANT_USER);
+    }
+
+    /**
+     * Number of devices reconnecting together.
+     *
+     * @return device counts
+     */
+    @DataProvider(name = "deviceCounts")
+    public static Object[][] deviceCounts() {
+        return new Object[][]{
+                {100},
+                {1000},
+                {5000}
+        };
+    }
+
+    /**
+     * 1. Subscribe the given number of devices to a topic with QOS 1 and clean session set to false.
+     * 2. Disconnect every device without unsubscribing.
+     * 3. Publish {@value #QUEUED_MESSAGE_COUNT} messages to the topic.
+     * 4. Reconnect every device together and log the time taken to reconnect and to receive the queued messages.
+     * 5. Verify every device received every queued message and remove the persistent sessions.
+     *
+     * @param deviceCount number of devices
+     * @throws MqttException
+     * @throws XPathExpressionException
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    @Test(groups = {"wso2.mb", "mqtt"}, description = "Persistent session reconnect storm",
+            dataProvider = "deviceCounts")
+    public void performPersistentSessionReconnectStormTestCase(int deviceCount)
+            throws MqttException, XPathExpressionException, InterruptedException, ExecutionException {
+        String topic = "PersistentSessionReconnectStorm" + deviceCount;
+        int expectedCount = deviceCount * QUEUED_MESSAGE_COUNT;
+
+        MQTTClientEngine mqttClientEngine = new MQTTClientEngine();
+        MQTTClientConnectionConfiguration configuration = mqttClientEngine.getConfigurations(automationContext);
+        configuration.setCleanSession(false);
+
+        // Creating the persistent sessions
+        for (int i = 0; i < deviceCount; i++) {
+            mqttClientEngine.createSubscriberConnection(configuration, topic, QualityOfService.LEAST_ONCE, false,
+                    ClientMode.BLOCKING);
+        }
+        List<AndesMQTTClient> devices = mqttClientEngine.getSubscriberList();
+        for (AndesMQTTClient device : devices) {
+            device.disconnect();
+        }
+
+        mqttClientEngine.createPublisherConnection(configuration, topic, QualityOfService.LEAST_ONCE,
+                MQTTConstants.TEMPLATE_PAYLOAD, QUEUED_MESSAGE_COUNT, ClientMode.BLOCKING);
+
+        // Reconnecting every device together
+        ExecutorService reconnectExecutor = Executors.newFixedThreadPool(RECONNECT_THREAD_COUNT);
+        List<Future<Void>> reconnects = new ArrayList<>();
+        long reconnectStartTime = System.currentTimeMillis();
+        for (final AndesMQTTClient device : devices) {
+            reconnects.add(reconnectExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws MqttException {
+                    device.connect();
+                    device.subscribe();
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> reconnect : reconnects) {
+            reconnect.get();
+        }
+        long reconnectDuration = System.currentTimeMillis() - reconnectStartTime;
+        reconnectExecutor.shutdown();
+
+        long deadline = reconnectStartTime + RECONNECT_WAIT_TIMEOUT;
+        while (getReceivedMessageCount(devices) < expectedCount && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(100L);
+        }
+        long deliveryDuration = System.currentTimeMillis() - reconnectStartTime;
+        int receivedCount = getReceivedMessageCount(devices);
+
+        log.info("[MQTT-RECONNECT-STORM] Devices:" + deviceCount + " QueuedMessagesPerDevice:" + QUEUED_MESSAGE_COUNT
+                 + " ReconnectDuration:" + reconnectDuration + "ms DeliveryDuration:" + deliveryDuration + "ms");
+
+        // Removing the persistent sessions
+        for (AndesMQTTClient device : devices) {
+            device.unsubscribe();
+        }
+        mqttClientEngine.shutdown();
+
+        Assert.assertEquals(mqttClientEngine.getSentMessageCount(), QUEUED_MESSAGE_COUNT, "Message sending failed.");
+        Assert.assertEquals(receivedCount, expectedCount,
+                "Devices did not receive the messages queued while they were disconnected.");
+    }
+
+    /**
+     * Total number of messages received by the given devices.
+     *
+     * @param devices the devices
+     * @return received message count
+     */
+    private int getReceivedMessageCount(List<AndesMQTTClient> devices) {
+        int receivedCount = 0;
+        for (AndesMQTTClient device : devices) {
+            receivedCount = receivedCount + device.getReceivedMessageCount();
+        }
+        return receivedCount;
+    }
+}
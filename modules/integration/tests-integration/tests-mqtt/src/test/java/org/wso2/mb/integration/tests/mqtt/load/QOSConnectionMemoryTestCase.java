@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.mqtt.load;
+
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.mb.integration.common.clients.ClientMode;
+import org.wso2.mb.integration.common.clients.MQTTClientConnectionConfiguration;
+import org.wso2.mb.integration.common.clients.MQTTClientEngine;
+import org.wso2.mb.integration.common.clients.MQTTConstants;
+import org.wso2.mb.integration.common.clients.QualityOfService;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+import org.wso2.mb.integration.tests.mqtt.DataProvider.QualityOfServiceDataProvider;
+
+import javax.management.JMException;
+import javax.xml.xpath.XPathExpressionException;
+import java.io.IOException;
+
+/**
+ * Measure the broker heap used by each subscriber connection at every Quality of Service level.
+ * <p/>
+ * A large number of subscribers connect to a topic. The used heap of the broker is read through JMX after a garbage
+ * collection before the subscribers connect and once they are connected, giving the idle cost of a connection and its
+ * subscription. Messages are then published and the peak heap of the broker is read while they are being delivered,
+ * without forcing a garbage collection, giving the additional cost of a connection while messages are in flight.
+ * Both figures are logged per connection for each Quality of Service level.
+ */
+public class QOSConnectionMemoryTestCase extends MBIntegrationBaseTest {
+
+    /**
+     * Number of subscriber connections
+     */
+    private static final int SUBSCRIBER_COUNT = 1000;
+
+    /**
+     * Number of messages published to the subscribers
+     */
+    private static final int SEND_COUNT = 10;
+
+    /**
+     * Initialize super class.
+     *
+     * @throws Exception
+     */
+    @BeforeClass
+    public void prepare() throws Exception {
+        super.init(TestUserMode.SUPER_TENANT_USER);
+    }
+
+    /**
+     * 1. Read the used heap of the broker after a garbage collection.
+     * 2. Connect {@value #SUBSCRIBER_COUNT} subscribers to a topic with the given Quality of Service.
+     * 3. Read the used heap of the broker after a garbage collection as the idle heap.
+     * 4. Publish {@value #SEND_COUNT} messages and wait until every subscriber received them.
+     * 5. Read the peak heap of the broker during the delivery and log the idle and in-flight cost per connection.
+     *
+     * @param qualityOfService The Quality of Service of the subscribers and the publisher
+     * @throws MqttException
+     * @throws XPathExpressionException
+     * @throws IOException
+     * @throws JMException
+     */
+    @Test(groups = {"wso2.mb", "mqtt"}, description = "Broker heap used per connection for each QOS level",
+            dataProvider = "QualityOfServiceDataProvider", dataProviderClass = QualityOfServiceDataProvider.class)
+    public void performQOSConnectionMemoryTestCase(QualityOfService qualityOfService)
+            throws MqttException, XPathExpressionException, IOException, JMException {
+        String topic = "QOSConnectionMemory" + qualityOfService.getValue();
+
+        long baselineHeap = getBrokerUsedHeapAfterGC();
+
+        MQTTClientEngine mqttClientEngine = new MQTTClientEngine();
+        MQTTClientConnectionConfiguration configuration = mqttClientEngine.getConfigurations(automationContext);
+
+        mqttClientEngine.createSubscriberConnection(topic, qualityOfService, SUBSCRIBER_COUNT, false,
+                ClientMode.BLOCKING, configuration);
+
+        long idleHeap = getBrokerUsedHeapAfterGC();
+
+        // Tracking the peak heap while messages are delivered and acknowledged
+        resetBrokerHeapPeakUsage();
+        mqttClientEngine.createPublisherConnection(configuration, topic, qualityOfService,
+                MQTTConstants.TEMPLATE_PAYLOAD, SEND_COUNT, ClientMode.BLOCKING);
+        mqttClientEngine.waitUntilExpectedNumberOfMessagesReceived(SEND_COUNT * SUBSCRIBER_COUNT, 300000L);
+
+        long inFlightPeakHeap = getBrokerPeakHeapUsage();
+        int receivedCount = mqttClientEngine.getReceivedMessageCount();
+
+        mqttClientEngine.shutdown();
+
+        log.info("[QOS-MEMORY] QOS:" + qualityOfService.getValue() + " Connections:" + SUBSCRIBER_COUNT
+                 + " BaselineHeap:" + baselineHeap + " IdleHeap:" + idleHeap + " InFlightPeakHeap:"
+                 + inFlightPeakHeap + " IdleBytesPerConnection:" + ((idleHeap - baselineHeap) / SUBSCRIBER_COUNT)
+                 + " InFlightBytesPerConnection:" + ((inFlightPeakHeap - idleHeap) / SUBSCRIBER_COUNT));
+
+        Assert.assertEquals(receivedCount, SEND_COUNT * SUBSCRIBER_COUNT, "Message receiving failed.");
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.mqtt.load;
+
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.mb.integration.common.clients.AndesMQTTClient;
+import org.wso2.mb.integration.common.clients.ClientMode;
+import org.wso2.mb.integration.common.clients.MQTTClientConnectionConfiguration;
+import org.wso2.mb.integration.common.clients.MQTTClientEngine;
+import org.wso2.mb.integration.common.clients.MQTTConstants;
+import org.wso2.mb.integration.common.clients.QualityOfService;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+
+import javax.xml.xpath.XPathExpressionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the time taken by a new wildcard subscription to receive the retained messages matching it while the
+ * total number of retained messages grows.
+ * <p/>
+ * Retained messages are published to many device state topics which do not match the probe filter and to a few
+ * which do. The time taken for the probe subscription to receive its retained messages is logged for each retained
+ * message count and should depend on the number of matches rather than on the total.
+ */
+public class RetainedWildcardSubscribeTestCase extends MBIntegrationBaseTest {
+
+    /**
+     * Number of retained messages matching the probe filter
+     */
+    private static final int MATCH_COUNT = 10;
+
+    /**
+     * Maximum time to wait for the probe subscriber to receive the matching retained messages
+     */
+    private static final long RECEIVE_WAIT_TIMEOUT = 300000L;
+
+    /**
+     * Initialize super class.
+     *
+     * @throws Exception
+     */
+    @BeforeClass
+    public void prepare() throws Exception {
+        super.init(TestUserMode.SUPER_TENANT_USER);
+    }
+
+    /**
+     * Number of retained messages which do not match the probe filter.
+     *
+     * @return retained message counts
+     */
+    @DataProvider(name = "retainedCounts")
+    public static Object[][] retainedCounts() {
+        return new Object[][]{
+                {1000},
+                {10000},
+                {100000}
+        };
+    }
+
+    /**
+     * 1. Publish retained messages to the given number of non matching device state topics.
+     * 2. Publish {@value #MATCH_COUNT} retained messages to matching device state topics.
+     * 3. Subscribe with a single level wildcard filter and log the time taken to receive the matching retained
+     * messages.
+     * 4. Clear every retained message and verify the probe received only the matching ones.
+     *
+     * @param retainedCount number of non matching retained messages
+     * @throws MqttException
+     * @throws XPathExpressionException
+     * @throws InterruptedException
+     */
+    @Test(groups = {"wso2.mb", "mqtt"}, description = "Wildcard subscribe latency against retained message count",
+            dataProvider = "retainedCounts")
+    public void performRetainedWildcardSubscribeTestCase(int retainedCount)
+            throws MqttException, XPathExpressionException, InterruptedException {
+        String topicPrefix = "RetainedWildcardSubscribe" + retainedCount;
+
+        MQTTClientEngine mqttClientEngine = new MQTTClientEngine();
+        MQTTClientConnectionConfiguration configuration = mqttClientEngine.getConfigurations(automationContext);
+
+        // Publishing every retained message through a single connection
+        MqttClient retainPublisher = createRetainPublisher(configuration, mqttClientEngine.generateClientID());
+        for (int i = 0; i < retainedCount; i++) {
+            retainPublisher.publish(topicPrefix + "/fleet/device" + i + "/state", MQTTConstants.TEMPLATE_PAYLOAD,
+                    QualityOfService.LEAST_ONCE.getValue(), true);
+        }
+        for (int i = 0; i < MATCH_COUNT; i++) {
+            retainPublisher.publish(topicPrefix + "/probe/device" + i + "/state", MQTTConstants.TEMPLATE_PAYLOAD,
+                    QualityOfService.LEAST_ONCE.getValue(), true);
+        }
+
+        long subscribeStartTime = System.currentTimeMillis();
+        mqttClientEngine.createSubscriberConnection(configuration, topicPrefix + "/probe/+/state",
+                QualityOfService.LEAST_ONCE, false, ClientMode.BLOCKING);
+        AndesMQTTClient probeClient = mqttClientEngine.getSubscriberList().get(0);
+
+        long deadline = subscribeStartTime + RECEIVE_WAIT_TIMEOUT;
+        while (probeClient.getReceivedMessageCount() < MATCH_COUNT && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        long receiveDuration = System.currentTimeMillis() - subscribeStartTime;
+
+        // Waiting to make sure no non matching retained message is delivered
+        TimeUnit.SECONDS.sleep(5L);
+        int receivedCount = probeClient.getReceivedMessageCount();
+        mqttClientEngine.shutdown();
+
+        log.info("[RETAINED-WILDCARD] RetainedMessages:" + (retainedCount + MATCH_COUNT) + " MatchingMessages:"
+                 + MATCH_COUNT + " SubscribeToRetainedReceiveDuration:" + receiveDuration + "ms");
+
+        // Clearing the retained messages by publishing empty retained messages to the same topics
+        for (int i = 0; i < retainedCount; i++) {
+            retainPublisher.publish(topicPrefix + "/fleet/device" + i + "/state", new byte[0],
+                    QualityOfService.LEAST_ONCE.getValue(), true);
+        }
+        for (int i = 0; i < MATCH_COUNT; i++) {
+            retainPublisher.publish(topicPrefix + "/probe/device" + i + "/state", new byte[0],
+                    QualityOfService.LEAST_ONCE.getValue(), true);
+        }
+        retainPublisher.disconnect();
+
+        Assert.assertEquals(receivedCount, MATCH_COUNT,
+                "Probe subscriber did not receive exactly the matching retained messages.");
+    }
+
+    /**
+     * Connect a client used to publish retained messages to many topics.
+     *
+     * @param configuration MQTT configurations of the test
+     * @param clientID      unique client ID
+     * @return connected client
+     * @throws MqttException
+     */
+    private MqttClient createRetainPublisher(MQTTClientConnectionConfiguration configuration, String clientID)
+            throws MqttException {
+        MqttConnectOptions connectionOptions = new MqttConnectOptions();
+        connectionOptions.setCleanSession(true);
+        if (null != configuration.getBrokerUserName()) {
+            connectionOptions.setUserName(configuration.getBrokerUserName());
+        }
+        if (null != configuration.getBrokerPassword()) {
+            connectionOptions.setPassword(configuration.getBrokerPassword().toCharArray());
+        }
+
+        MqttClient mqttClient = new MqttClient(configuration.getBrokerURL(), clientID, new MemoryPersistence());
+        mqttClient.connect(connectionOptions);
+        return mqttClient;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.tests.mqtt.load;
+
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.mb.integration.common.clients.AndesMQTTClient;
+import org.wso2.mb.integration.common.clients.ClientMode;
+import org.wso2.mb.integration.common.clients.MQTTClientConnectionConfiguration;
+import org.wso2.mb.integration.common.clients.MQTTClientEngine;
+import org.wso2.mb.integration.common.clients.MQTTConstants;
+import org.wso2.mb.integration.common.clients.QualityOfService;
+import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
+
+import javax.xml.xpath.XPathExpressionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the cost of matching published messages against a growing number of wildcard subscriptions.
+ * <p/>
+ * A filler client registers wildcard subscriptions that never match the published topic while two probe clients
+ * subscribe with the same kind of filters used by device fleets. The time taken to deliver a fixed number of
+ * messages to the probes is logged for each subscription count and should stay flat as subscriptions grow.
+ */
+public class WildcardSubscriptionMatchingTestCase extends MBIntegrationBaseTest {
+
+    /**
+     * Number of messages published for each subscription count
+     */
+    private static final int SEND_COUNT = 10000;
+
+    /**
+     * Maximum time to wait for the probe subscribers to receive all the messages
+     */
+    private static final long RECEIVE_WAIT_TIMEOUT = 300000L;
+
+    /**
+     * Topic the messages are published to. Matched by the filter of each probe.
+     */
+    private static final String PUBLISH_TOPIC = "CAR/1234/sedan/engineTemperature";
+
+    /**
+     * Initialize super class.
+     *
+     * @throws Exception
+     */
+    @BeforeClass
+    public void prepare() throws Exception {
+        super.init(TestUserMode.SUPER_TENANT_USER);
+    }
+
+    /**
+     * Number of non matching wildcard subscriptions registered before publishing.
+     *
+     * @return subscription counts
+     */
+    @DataProvider(name = "subscriptionCounts")
+    public static Object[][] subscriptionCounts() {
+        return new Object[][]{
+                {1000},
+                {10000},
+                {100000}
+        };
+    }
+
+    /**
+     * 1. Subscribe a filler client to the given number of non matching single and multi level wildcard filters.
+     * 2. Subscribe one probe client to +/+/+/engineTemperature and another to CAR/#.
+     * 3. Publish messages to {@value #PUBLISH_TOPIC} and log the time taken for the probes to receive them.
+     * 4. Verify each probe received every message and the filler received none.
+     *
+     * @param subscriptionCount number of non matching wildcard subscriptions
+     * @throws MqttException
+     * @throws XPathExpressionException
+     */
+    @Test(groups = {"wso2.mb", "mqtt"}, description = "Wildcard matching cost against subscription count",
+            dataProvider = "subscriptionCounts")
+    public void performWildcardSubscriptionMatchingTestCase(int subscriptionCount)
+            throws MqttException, XPathExpressionException {
+        MQTTClientEngine mqttClientEngine = new MQTTClientEngine();
+        MQTTClientConnectionConfiguration configuration = mqttClientEngine.getConfigurations(automationContext);
+
+        // Registering wildcard subscriptions which never match the published topic
+        mqttClientEngine.createSubscriberConnection(configuration, getFillerFilter(0), QualityOfService.LEAST_ONCE,
+                false, ClientMode.BLOCKING);
+        AndesMQTTClient fillerClient = mqttClientEngine.getSubscriberList().get(0);
+        for (int i = 1; i < subscriptionCount; i++) {
+            fillerClient.subscribe(getFillerFilter(i));
+        }
+
+        // Subscribing a probe for each filter matching the published topic. Separate clients are used since a
+        // server may deliver a single copy to a client with overlapping subscriptions.
+        mqttClientEngine.createSubscriberConnection(configuration, "+/+/+/engineTemperature",
+                QualityOfService.LEAST_ONCE, false, ClientMode.BLOCKING);
+        AndesMQTTClient singleLevelProbeClient = mqttClientEngine.getSubscriberList().get(1);
+        mqttClientEngine.createSubscriberConnection(configuration, "CAR/#", QualityOfService.LEAST_ONCE, false,
+                ClientMode.BLOCKING);
+        AndesMQTTClient multiLevelProbeClient = mqttClientEngine.getSubscriberList().get(2);
+
+        int expectedCount = SEND_COUNT * 2;
+        long publishStartTime = System.currentTimeMillis();
+        mqttClientEngine.createPublisherConnection(configuration, PUBLISH_TOPIC, QualityOfService.LEAST_ONCE,
+                MQTTConstants.TEMPLATE_PAYLOAD, SEND_COUNT, ClientMode.BLOCKING);
+
+        long deadline = publishStartTime + RECEIVE_WAIT_TIMEOUT;
+        while (singleLevelProbeClient.getReceivedMessageCount() + multiLevelProbeClient.getReceivedMessageCount()
+               < expectedCount && System.currentTimeMillis() < deadline) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(100L);
+            } catch (InterruptedException e) {
+                log.error("Error waiting for receiving messages.", e);
+            }
+        }
+        long deliveryDuration = System.currentTimeMillis() - publishStartTime;
+
+        log.info("[WILDCARD] Subscriptions:" + (subscriptionCount + 2) + " PublishedMessages:" + SEND_COUNT
+                 + " DeliveryDuration:" + deliveryDuration + "ms DeliveredTPS:"
+                 + ((double) expectedCount * 1000 / deliveryDuration));
+
+        mqttClientEngine.shutdown();
+
+        Assert.assertEquals(mqttClientEngine.getSentMessageCount(), SEND_COUNT, "Message sending failed.");
+        Assert.assertEquals(singleLevelProbeClient.getReceivedMessageCount(), SEND_COUNT,
+                "Single level wildcard probe did not receive every message.");
+        Assert.assertEquals(multiLevelProbeClient.getReceivedMessageCount(), SEND_COUNT,
+                "Multi level wildcard probe did not receive every message.");
+        Assert.assertEquals(fillerClient.getReceivedMessageCount(), 0,
+                "Messages were delivered to non matching wildcard subscriptions.");
+    }
+
+    /**
+     * Build a wildcard filter which does not match {@value #PUBLISH_TOPIC}. Single level and multi level filters
+     * are alternated so that both kinds of wildcard nodes are populated.
+     *
+     * @param index index of the filter
+     * @return the topic filter
+     */
+    private String getFillerFilter(int index) {
+        if (0 == index % 2) {
+            return "fleet" + index + "/+/+/engineTemperature";
+        } else {
+            return "fleet" + index + "/#";
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.platform.tests.clustering;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.andes.stub.AndesAdminServiceBrokerManagerAdminException;
+import org.wso2.carbon.authenticator.stub.LoginAuthenticationExceptionException;
+import org.wso2.carbon.automation.engine.context.AutomationContext;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.carbon.integration.common.utils.exceptions.AutomationUtilException;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.exceptions.AndesClientConfigurationException;
+import org.wso2.mb.integration.common.clients.exceptions.AndesClientException;
+import org.wso2.mb.integration.common.clients.operations.clients.AndesAdminClient;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.platform.common.utils.MBPlatformBaseTest;
+import org.xml.sax.SAXException;
+
+import javax.jms.JMSException;
+import javax.naming.NamingException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.xpath.XPathExpressionException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.rmi.RemoteException;
+
+/**
+ * Load test in MB clustering comparing the delivery latency of messages published and consumed
+ * through the same node with messages published through one node and consumed through another.
+ * Messages to a subscriber on another node go through the shared store and the slot handoff, so
+ * the difference between the two logged latencies is the cost of crossing nodes.
+ */
+public class CrossNodeLatencyTestCase extends MBPlatformBaseTest {
+
+    /**
+     * Number of messages sent for each node combination
+     */
+    private static final long SEND_COUNT = 5000L;
+
+    /**
+     * Delay between published messages in milliseconds. Both node combinations publish at this
+     * rate so their latencies can be compared
+     */
+    private static final long PUBLISHER_DELAY = 2L;
+
+    private static final String QUEUE_NAME_PREFIX = "crossNodeLatencyQueue";
+
+    /**
+     * Prepare environment for tests.
+     *
+     * @throws LoginAuthenticationExceptionException
+     * @throws IOException
+     * @throws XPathExpressionException
+     * @throws URISyntaxException
+     * @throws SAXException
+     * @throws XMLStreamException
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init()
+            throws LoginAuthenticationExceptionException, IOException, XPathExpressionException,
+            URISyntaxException, SAXException, XMLStreamException, AutomationUtilException {
+        super.initCluster(TestUserMode.SUPER_TENANT_ADMIN);
+        super.initAndesAdminClients();
+    }
+
+    /**
+     * Nodes to publish and consume through, keyed as in automation.xml.
+     *
+     * @return publisher node and consumer node
+     */
+    @DataProvider(name = "nodeCombinations")
+    public static Object[][] nodeCombinations() {
+        return new Object[][]{
+                {"mb002", "mb002"},
+                {"mb002", "mb003"}
+        };
+    }
+
+    /**
+     * 1. Start a consumer on a queue through the given consumer node.
+     * 2. Publish 5000 messages at a steady rate through the given publisher node.
+     * 3. Log the average latency and verify every message was received.
+     *
+     * @param publisherNode key of the node to publish through
+     * @param consumerNode  key of the node to consume through
+     * @throws XPathExpressionException
+     * @throws AndesClientConfigurationException
+     * @throws NamingException
+     * @throws JMSException
+     * @throws IOException
+     * @throws AndesClientException
+     */
+    @Test(groups = "wso2.mb", description = "Same node and cross node delivery latency test case",
+          dataProvider = "nodeCombinations")
+    public void testCrossNodeLatency(String publisherNode, String consumerNode)
+            throws XPathExpressionException, AndesClientConfigurationException, NamingException, JMSException,
+                   IOException, AndesClientException {
+        String queueName = getQueueName(publisherNode, consumerNode);
+        AutomationContext publisherContext = getAutomationContextWithKey(publisherNode);
+        AutomationContext consumerContext = getAutomationContextWithKey(consumerNode);
+
+        AndesJMSConsumerClientConfiguration consumerConfig =
+                new AndesJMSConsumerClientConfiguration(consumerContext.getInstance().getHosts().get("default"),
+                                         Integer.parseInt(consumerContext.getInstance().getPorts().get("amqp")),
+                                         ExchangeType.QUEUE, queueName);
+        consumerConfig.setMaximumMessagesToReceived(SEND_COUNT);
+        consumerConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+
+        AndesJMSPublisherClientConfiguration publisherConfig =
+                new AndesJMSPublisherClientConfiguration(publisherContext.getInstance().getHosts().get("default"),
+                                        Integer.parseInt(publisherContext.getInstance().getPorts().get("amqp")),
+                                        ExchangeType.QUEUE, queueName);
+        publisherConfig.setNumberOfMessagesToSend(SEND_COUNT);
+        publisherConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+        publisherConfig.setRunningDelay(PUBLISHER_DELAY);
+
+        // Creating clients
+        AndesClient consumerClient = new AndesClient(consumerConfig, true);
+        consumerClient.startClient();
+
+        AndesClient publisherClient = new AndesClient(publisherConfig, true);
+        publisherClient.startClient();
+
+        AndesClientUtils.waitForMessagesAndShutdown(consumerClient, AndesClientConstants.DEFAULT_RUN_TIME);
+
+        log.info("[CROSS-NODE] PublisherNode:" + publisherNode + " ConsumerNode:" + consumerNode + " Messages:"
+                 + SEND_COUNT + " AverageLatency:" + consumerClient.getAverageLatency() + " ConsumerTPS:"
+                 + consumerClient.getConsumerTPS());
+
+        // Evaluating
+        Assert.assertEquals(publisherClient.getSentMessageCount(), SEND_COUNT, "Message sending failed.");
+        Assert.assertEquals(consumerClient.getReceivedMessageCount(), SEND_COUNT, "Message receiving failed.");
+    }
+
+    /**
+     * Cleanup after running tests.
+     *
+     * @throws AndesAdminServiceBrokerManagerAdminException
+     * @throws RemoteException
+     */
+    @AfterClass(alwaysRun = true)
+    public void destroy() throws AndesAdminServiceBrokerManagerAdminException, RemoteException {
+        AndesAdminClient tempAndesAdminClient = getAndesAdminClientWithKey(getRandomMBInstance());
+
+        for (Object[] nodeCombination : nodeCombinations()) {
+            String queueName = getQueueName((String) nodeCombination[0], (String) nodeCombination[1]);
+            if (tempAndesAdminClient.getQueueByName(queueName) != null) {
+                tempAndesAdminClient.deleteQueue(queueName);
+            }
+        }
+    }
+
+    /**
+     * Queue used for a node combination, so a combination does not receive leftovers of another.
+     *
+     * @param publisherNode key of the node to publish through
+     * @param consumerNode  key of the node to consume through
+     * @return queue name
+     */
+    private String getQueueName(String publisherNode, String consumerNode) {
+        return QUEUE_NAME_PREFIX + publisherNode + consumerNode;
+    }
+}
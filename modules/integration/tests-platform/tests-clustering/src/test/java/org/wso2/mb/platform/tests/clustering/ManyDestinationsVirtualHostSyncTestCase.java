@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.platform.tests.clustering;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
+import org.wso2.carbon.andes.stub.AndesAdminServiceBrokerManagerAdminException;
+import org.wso2.carbon.authenticator.stub.LoginAuthenticationExceptionException;
+import org.wso2.carbon.automation.engine.context.AutomationContext;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.carbon.integration.common.utils.exceptions.AutomationUtilException;
+import org.wso2.carbon.integration.common.utils.mgt.ServerConfigurationManager;
+import org.wso2.mb.integration.common.clients.operations.clients.AndesAdminClient;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.utils.backend.ConfigurationEditor;
+import org.wso2.mb.platform.common.utils.MBPlatformBaseTest;
+import org.xml.sax.SAXException;
+
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.xpath.XPathExpressionException;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load test in MB clustering for the background cost of the periodic virtual host sync as the
+ * number of destinations grows. The failover/vHostSyncTaskInterval of every node is shortened so
+ * that the full sync runs many times within a measurement window. With a growing number of queues
+ * and no traffic, the CPU time used by each node over the window is read through JMX and logged
+ * per sync interval. The cost should not grow steeply with the number of queues.
+ * <p/>
+ * The broker.xml of each node is edited in place, so the carbon home of every node has to be given
+ * through the "mb002.carbon.home" and "mb003.carbon.home" system properties. The test is skipped
+ * otherwise.
+ */
+public class ManyDestinationsVirtualHostSyncTestCase extends MBPlatformBaseTest {
+
+    /**
+     * Instance keys of the cluster nodes
+     */
+    private static final String[] NODE_KEYS = {"mb002", "mb003"};
+
+    /**
+     * Virtual host sync interval in seconds used during the test
+     */
+    private static final int VHOST_SYNC_INTERVAL = 10;
+
+    /**
+     * Number of sync intervals the CPU time is measured over
+     */
+    private static final int MEASURED_SYNC_COUNT = 6;
+
+    private static final String EXISTING_QUEUE_NAME_PREFIX = "vHostSyncExistingQueue";
+
+    /**
+     * Number of existing queues created so far, kept across data provider runs
+     */
+    private int existingQueueCount = 0;
+
+    /**
+     * Configuration managers of the nodes whose configuration was changed
+     */
+    private List<ServerConfigurationManager> serverConfigurationManagers = new ArrayList<>();
+
+    /**
+     * Prepare environment for tests and shorten the virtual host sync interval of every node.
+     *
+     * @throws LoginAuthenticationExceptionException
+     * @throws IOException
+     * @throws XPathExpressionException
+     * @throws URISyntaxException
+     * @throws SAXException
+     * @throws XMLStreamException
+     * @throws ConfigurationException
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init()
+            throws LoginAuthenticationExceptionException, IOException, XPathExpressionException,
+            URISyntaxException, SAXException, XMLStreamException, AutomationUtilException, ConfigurationException {
+        super.initCluster(TestUserMode.SUPER_TENANT_ADMIN);
+
+        for (String nodeKey : NODE_KEYS) {
+            String carbonHome = System.getProperty(nodeKey + ".carbon.home");
+            if (null == carbonHome) {
+                throw new SkipException("Carbon home of node " + nodeKey + " is not given through the "
+                                        + nodeKey + ".carbon.home system property.");
+            }
+
+            String brokerConfigurationPath = carbonHome + File.separator + "repository" + File.separator + "conf"
+                                             + File.separator + "broker.xml";
+            ServerConfigurationManager serverConfigurationManager =
+                    new ServerConfigurationManager(getAutomationContextWithKey(nodeKey));
+            ConfigurationEditor configurationEditor = new ConfigurationEditor(brokerConfigurationPath);
+            configurationEditor.updateProperty(AndesConfiguration.PERFORMANCE_TUNING_FAILOVER_VHOST_SYNC_TASK_INTERVAL,
+                                               String.valueOf(VHOST_SYNC_INTERVAL));
+            configurationEditor.applyUpdatedConfigurationAndRestartServer(serverConfigurationManager);
+            serverConfigurationManagers.add(serverConfigurationManager);
+        }
+
+        super.initAndesAdminClients();
+    }
+
+    /**
+     * Number of queues existing in the cluster while the sync runs.
+     *
+     * @return existing queue counts in ascending order
+     */
+    @DataProvider(name = "existingQueueCounts")
+    public static Object[][] existingQueueCounts() {
+        return new Object[][]{
+                {0},
+                {1000},
+                {5000}
+        };
+    }
+
+    /**
+     * 1. Create queues through a random node until the given number of queues exist.
+     * 2. Wait for a sync interval so the new queues are part of the next sync.
+     * 3. Read the CPU time of every node, wait for {@value #MEASURED_SYNC_COUNT} sync intervals
+     * without traffic and read the CPU time again.
+     * 4. Log the CPU time used per sync interval by every node.
+     *
+     * @param queueCount number of queues existing in the cluster
+     * @throws AndesAdminServiceBrokerManagerAdminException
+     * @throws RemoteException
+     * @throws XPathExpressionException
+     * @throws IOException
+     * @throws JMException
+     */
+    @Test(groups = "wso2.mb", description = "Virtual host sync with many destinations test case",
+          dataProvider = "existingQueueCounts")
+    public void testManyDestinationsVirtualHostSync(int queueCount)
+            throws AndesAdminServiceBrokerManagerAdminException, RemoteException, XPathExpressionException,
+                   IOException, JMException {
+        AndesAdminClient andesAdminClient = getAndesAdminClientWithKey(getRandomMBInstance());
+        for (; existingQueueCount < queueCount; existingQueueCount++) {
+            andesAdminClient.createQueue(EXISTING_QUEUE_NAME_PREFIX + existingQueueCount);
+        }
+
+        AndesClientUtils.sleepForInterval(VHOST_SYNC_INTERVAL * 1000L);
+
+        Map<String, Long> cpuTimeBefore = new HashMap<>();
+        for (String nodeKey : NODE_KEYS) {
+            cpuTimeBefore.put(nodeKey, getProcessCpuTime(nodeKey));
+        }
+
+        AndesClientUtils.sleepForInterval(VHOST_SYNC_INTERVAL * 1000L * MEASURED_SYNC_COUNT);
+
+        for (String nodeKey : NODE_KEYS) {
+            long cpuTimeUsed = getProcessCpuTime(nodeKey) - cpuTimeBefore.get(nodeKey);
+            log.info("[VHOST-SYNC] Node:" + nodeKey + " ExistingQueues:" + queueCount + " SyncInterval:"
+                     + VHOST_SYNC_INTERVAL + "s CpuTimePerSync:" + (cpuTimeUsed / MEASURED_SYNC_COUNT / 1000000L)
+                     + "ms");
+        }
+    }
+
+    /**
+     * Cleanup after running tests and restore the configuration of every node.
+     *
+     * @throws AndesAdminServiceBrokerManagerAdminException
+     * @throws RemoteException
+     * @throws AutomationUtilException
+     */
+    @AfterClass(alwaysRun = true)
+    public void destroy() throws AndesAdminServiceBrokerManagerAdminException, RemoteException,
+                                 AutomationUtilException {
+        if (0 < existingQueueCount) {
+            AndesAdminClient tempAndesAdminClient = getAndesAdminClientWithKey(getRandomMBInstance());
+
+            for (int i = 0; i < existingQueueCount; i++) {
+                if (tempAndesAdminClient.getQueueByName(EXISTING_QUEUE_NAME_PREFIX + i) != null) {
+                    tempAndesAdminClient.deleteQueue(EXISTING_QUEUE_NAME_PREFIX + i);
+                }
+            }
+        }
+
+        for (ServerConfigurationManager serverConfigurationManager : serverConfigurationManagers) {
+            serverConfigurationManager.restoreToLastConfiguration(true);
+        }
+    }
+
+    /**
+     * Read the CPU time used by the process of a node through JMX.
+     *
+     * @param nodeKey instance key of the node
+     * @return CPU time used by the node in nanoseconds
+     * @throws XPathExpressionException
+     * @throws IOException
+     * @throws JMException
+     */
+    private long getProcessCpuTime(String nodeKey) throws XPathExpressionException, IOException, JMException {
+        AutomationContext nodeContext = getAutomationContextWithKey(nodeKey);
+        String host = nodeContext.getInstance().getHosts().get("default");
+        JMXServiceURL url = new JMXServiceURL("service:jmx:rmi://" + host + ":"
+                                              + nodeContext.getInstance().getPorts().get("jmxserver")
+                                              + "/jndi/rmi://" + host + ":"
+                                              + nodeContext.getInstance().getPorts().get("rmiregistry") + "/jmxrmi");
+        Map<String, String[]> env = new HashMap<>();
+        String[] credentials = {"admin", "admin"};
+        env.put(JMXConnector.CREDENTIALS, credentials);
+
+        JMXConnector jmxConnector = JMXConnectorFactory.connect(url, env);
+        try {
+            MBeanServerConnection mbeanServerConnection = jmxConnector.getMBeanServerConnection();
+            return (Long) mbeanServerConnection.getAttribute(new ObjectName("java.lang:type=OperatingSystem"),
+                                                             "ProcessCpuTime");
+        } finally {
+            jmxConnector.close();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.platform.tests.clustering;
+
+import com.google.common.net.HostAndPort;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.andes.stub.AndesAdminServiceBrokerManagerAdminException;
+import org.wso2.carbon.authenticator.stub.LoginAuthenticationExceptionException;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.carbon.integration.common.utils.exceptions.AutomationUtilException;
+import org.wso2.mb.integration.common.clients.operations.clients.AndesAdminClient;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.JMSClientHelper;
+import org.wso2.mb.platform.common.utils.MBPlatformBaseTest;
+import org.xml.sax.SAXException;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.xpath.XPathExpressionException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test in MB clustering for slot coordination with a large number of active queues. Every
+ * queue receives only a few messages, so each queue needs its own slots and the number of slot
+ * submit, assign and delete operations handled by the coordinator grows with the queue count
+ * rather than with the message count. The end to end throughput and the rate at which queues are
+ * drained, which is a lower bound for the coordinator slot operations per second, are logged.
+ */
+public class ManyQueuesSlotCoordinationTestCase extends MBPlatformBaseTest {
+
+    /**
+     * Number of active queues
+     */
+    private static final int QUEUE_COUNT = 10000;
+
+    /**
+     * Number of messages sent to each queue
+     */
+    private static final int SEND_COUNT_PER_QUEUE = 5;
+
+    /**
+     * Number of consumer sessions the queue consumers are spread over
+     */
+    private static final int CONSUMER_SESSION_COUNT = 20;
+
+    /**
+     * Maximum time to wait for every message to be received
+     */
+    private static final long DELIVERY_WAIT_TIMEOUT = 900000L;
+
+    private static final String QUEUE_NAME_PREFIX = "slotCoordinationQueue";
+
+    /**
+     * Prepare environment for tests.
+     *
+     * @throws LoginAuthenticationExceptionException
+     * @throws IOException
+     * @throws XPathExpressionException
+     * @throws URISyntaxException
+     * @throws SAXException
+     * @throws XMLStreamException
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init()
+            throws LoginAuthenticationExceptionException, IOException, XPathExpressionException,
+            URISyntaxException, SAXException, XMLStreamException, AutomationUtilException {
+        super.initCluster(TestUserMode.SUPER_TENANT_ADMIN);
+        super.initAndesAdminClients();
+    }
+
+    /**
+     * 1. Subscribe to 10000 queues through a random node.
+     * 2. Publish 5 messages to each queue through a different node.
+     * 3. Log the time taken to subscribe, publish and receive every message, the end to end
+     * throughput and the rate at which queues were drained.
+     *
+     * @throws XPathExpressionException
+     * @throws NamingException
+     * @throws JMSException
+     */
+    @Test(groups = "wso2.mb", description = "Slot coordination with many active queues test case")
+    public void testManyQueuesSlotCoordination()
+            throws XPathExpressionException, NamingException, JMSException {
+        long expectedCount = (long) QUEUE_COUNT * SEND_COUNT_PER_QUEUE;
+        final AtomicLong receivedCount = new AtomicLong(0L);
+
+        // Consuming and publishing through different nodes so that slots are coordinated across the cluster
+        String consumerInstanceKey = getRandomMBInstance();
+        String publisherInstanceKey;
+        do {
+            publisherInstanceKey = getRandomMBInstance();
+        } while (consumerInstanceKey.equals(publisherInstanceKey));
+
+        Connection consumerConnection = createConnection(getAMQPBrokerAddress(consumerInstanceKey));
+        Connection publisherConnection = createConnection(getAMQPBrokerAddress(publisherInstanceKey));
+
+        try {
+            MessageListener countingListener = new MessageListener() {
+                @Override
+                public void onMessage(Message message) {
+                    receivedCount.incrementAndGet();
+                }
+            };
+
+            // Subscribing to every queue, spreading the consumers over a few sessions
+            long subscribeStartTime = System.currentTimeMillis();
+            List<Session> consumerSessions = new ArrayList<>();
+            for (int i = 0; i < CONSUMER_SESSION_COUNT; i++) {
+                consumerSessions.add(consumerConnection.createSession(false, Session.AUTO_ACKNOWLEDGE));
+            }
+            for (int i = 0; i < QUEUE_COUNT; i++) {
+                Session consumerSession = consumerSessions.get(i % CONSUMER_SESSION_COUNT);
+                consumerSession.createConsumer(consumerSession.createQueue(QUEUE_NAME_PREFIX + i))
+                        .setMessageListener(countingListener);
+            }
+            consumerConnection.start();
+            long subscribeDuration = System.currentTimeMillis() - subscribeStartTime;
+
+            // Publishing a few messages to every queue
+            Session publisherSession = publisherConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = publisherSession.createProducer(null);
+            long publishStartTime = System.currentTimeMillis();
+            for (int i = 0; i < QUEUE_COUNT; i++) {
+                Queue queue = publisherSession.createQueue(QUEUE_NAME_PREFIX + i);
+                for (int j = 0; j < SEND_COUNT_PER_QUEUE; j++) {
+                    producer.send(queue, publisherSession.createTextMessage("Slot coordination message " + j));
+                }
+            }
+            long publishDuration = System.currentTimeMillis() - publishStartTime;
+
+            long deadline = publishStartTime + DELIVERY_WAIT_TIMEOUT;
+            while (receivedCount.get() < expectedCount && System.currentTimeMillis() < deadline) {
+                AndesClientUtils.sleepForInterval(500L);
+            }
+            long deliveryDuration = Math.max(System.currentTimeMillis() - publishStartTime, 1L);
+
+            log.info("[SLOT-COORDINATION] ConsumerNode:" + consumerInstanceKey + " PublisherNode:"
+                     + publisherInstanceKey + " Queues:" + QUEUE_COUNT + " Messages:" + expectedCount
+                     + " SubscribeDuration:" + subscribeDuration + "ms PublishDuration:" + publishDuration
+                     + "ms DeliveryDuration:" + deliveryDuration + "ms EndToEndTPS:"
+                     + (receivedCount.get() * 1000L / deliveryDuration) + " QueuesDrainedPerSecond:"
+                     + ((long) QUEUE_COUNT * 1000L / deliveryDuration));
+
+            Assert.assertEquals(receivedCount.get(), expectedCount, "Message receiving failed.");
+        } finally {
+            publisherConnection.close();
+            consumerConnection.close();
+        }
+    }
+
+    /**
+     * Cleanup after running tests.
+     *
+     * @throws AndesAdminServiceBrokerManagerAdminException
+     * @throws RemoteException
+     */
+    @AfterClass(alwaysRun = true)
+    public void destroy() throws AndesAdminServiceBrokerManagerAdminException, RemoteException {
+        AndesAdminClient tempAndesAdminClient = getAndesAdminClientWithKey(getRandomMBInstance());
+
+        for (int i = 0; i < QUEUE_COUNT; i++) {
+            if (tempAndesAdminClient.getQueueByName(QUEUE_NAME_PREFIX + i) != null) {
+                tempAndesAdminClient.deleteQueue(QUEUE_NAME_PREFIX + i);
+            }
+        }
+    }
+
+    /**
+     * Create a connection to the given broker as the admin user.
+     *
+     * @param brokerAddress AMQP address of the broker
+     * @return connection, which is not started
+     * @throws NamingException
+     * @throws JMSException
+     */
+    private Connection createConnection(HostAndPort brokerAddress) throws NamingException, JMSException {
+        InitialContext initialContext = JMSClientHelper.getInitialContextForQueue(
+                "admin", "admin", brokerAddress.getHostText(), String.valueOf(brokerAddress.getPort()),
+                QUEUE_NAME_PREFIX);
+        ConnectionFactory connectionFactory =
+                (ConnectionFactory) initialContext.lookup(JMSClientHelper.QUEUE_CONNECTION_FACTORY);
+
+        return connectionFactory.createConnection();
+    }
+}
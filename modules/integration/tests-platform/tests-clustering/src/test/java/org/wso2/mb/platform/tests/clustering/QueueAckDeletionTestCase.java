@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.platform.tests.clustering;
+
+import com.google.common.net.HostAndPort;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.andes.stub.AndesAdminServiceBrokerManagerAdminException;
+import org.wso2.carbon.authenticator.stub.LoginAuthenticationExceptionException;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.carbon.integration.common.utils.exceptions.AutomationUtilException;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.exceptions.AndesClientConfigurationException;
+import org.wso2.mb.integration.common.clients.exceptions.AndesClientException;
+import org.wso2.mb.integration.common.clients.operations.clients.AndesAdminClient;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.clients.operations.utils.JMSAcknowledgeMode;
+import org.wso2.mb.platform.common.utils.DataAccessUtil;
+import org.wso2.mb.platform.common.utils.MBPlatformBaseTest;
+import org.wso2.mb.platform.common.utils.exceptions.DataAccessUtilException;
+import org.xml.sax.SAXException;
+
+import javax.jms.JMSException;
+import javax.naming.NamingException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.xpath.XPathExpressionException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.rmi.RemoteException;
+
+/**
+ * Load test in MB clustering for deleting acknowledged messages. Messages are consumed in order,
+ * which is the case acknowledgements are coalesced into message id ranges for. Once consumption
+ * completes the metadata and the content of every acknowledged message should be removed from the
+ * store, including any deletes that were deferred by the broker.
+ */
+public class QueueAckDeletionTestCase extends MBPlatformBaseTest {
+
+    private static final long SEND_COUNT = 100000L;
+    private static final long EXPECTED_COUNT = SEND_COUNT;
+    private static final String QUEUE_NAME = "platformQueueAckDeletion";
+
+    /**
+     * Maximum time to wait for the consumer to receive every message
+     */
+    private static final long CONSUME_WAIT_TIMEOUT = 600000L;
+
+    /**
+     * Maximum time to wait for acknowledged messages to be removed from the store after the
+     * consumer has received all messages
+     */
+    private static final long DELETION_WAIT_TIMEOUT = 60000L;
+
+    /**
+     * Interval at which the store is polled while waiting for deletion
+     */
+    private static final long DELETION_POLL_INTERVAL = 1000L;
+
+    private DataAccessUtil dataAccessUtil = new DataAccessUtil();
+
+    /**
+     * Prepare environment for tests.
+     *
+     * @throws LoginAuthenticationExceptionException
+     * @throws IOException
+     * @throws XPathExpressionException
+     * @throws URISyntaxException
+     * @throws SAXException
+     * @throws XMLStreamException
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init()
+            throws LoginAuthenticationExceptionException, IOException, XPathExpressionException,
+            URISyntaxException, SAXException, XMLStreamException, AutomationUtilException {
+        super.initCluster(TestUserMode.SUPER_TENANT_ADMIN);
+        super.initAndesAdminClients();
+    }
+
+    /**
+     * Publish 100000 messages to a node and consume them in order with a single auto acknowledging
+     * subscriber on the same node. Verify that no metadata or content of these messages is left in
+     * the store and log how long the store took to reach that state after the last acknowledgement.
+     *
+     * @throws XPathExpressionException
+     * @throws AndesClientConfigurationException
+     * @throws NamingException
+     * @throws JMSException
+     * @throws IOException
+     * @throws AndesClientException
+     * @throws DataAccessUtilException
+     */
+    @Test(groups = "wso2.mb", description = "In order consumption acknowledged message deletion test case")
+    public void testInOrderAckDeletion()
+            throws XPathExpressionException, AndesClientConfigurationException, NamingException,
+                   JMSException, IOException, AndesClientException, DataAccessUtilException {
+        HostAndPort brokerAddress = getRandomAMQPBrokerAddress();
+
+        AndesJMSConsumerClientConfiguration consumerConfig =
+                new AndesJMSConsumerClientConfiguration(brokerAddress.getHostText(), brokerAddress.getPort(),
+                                                        ExchangeType.QUEUE, QUEUE_NAME);
+        consumerConfig.setAcknowledgeMode(JMSAcknowledgeMode.AUTO_ACKNOWLEDGE);
+        consumerConfig.setMaximumMessagesToReceived(EXPECTED_COUNT);
+        consumerConfig.setPrintsPerMessageCount(EXPECTED_COUNT / 10L);
+
+        AndesJMSPublisherClientConfiguration publisherConfig =
+                new AndesJMSPublisherClientConfiguration(brokerAddress.getHostText(), brokerAddress.getPort(),
+                                                         ExchangeType.QUEUE, QUEUE_NAME);
+        publisherConfig.setNumberOfMessagesToSend(SEND_COUNT);
+        publisherConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+
+        // Content left behind by earlier tests is not counted against this one
+        long baselineOrphanedContentCount = dataAccessUtil.getOrphanedContentMessageCount();
+
+        AndesClient consumerClient = new AndesClient(consumerConfig, true);
+        consumerClient.startClient();
+
+        AndesClient publisherClient = new AndesClient(publisherConfig, true);
+        publisherClient.startClient();
+
+        long consumeDeadline = System.currentTimeMillis() + CONSUME_WAIT_TIMEOUT;
+        while (consumerClient.getReceivedMessageCount() < EXPECTED_COUNT
+               && System.currentTimeMillis() < consumeDeadline) {
+            AndesClientUtils.sleepForInterval(100L);
+        }
+
+        // The last message is auto acknowledged as it is received, so deletion is timed from here
+        long deletionStartTime = System.currentTimeMillis();
+        AndesClientUtils.shutdownClient(consumerClient);
+
+        Assert.assertEquals(publisherClient.getSentMessageCount(), SEND_COUNT, "Message sending failed.");
+        Assert.assertEquals(consumerClient.getReceivedMessageCount(), EXPECTED_COUNT, "Message receiving failed.");
+
+        // Wait for deletes, including deferred ones, to reach the store
+        long deadline = deletionStartTime + DELETION_WAIT_TIMEOUT;
+        long remainingMetadataCount = dataAccessUtil.getMessageCountForQueue(QUEUE_NAME);
+        long orphanedContentCount =
+                dataAccessUtil.getOrphanedContentMessageCount() - baselineOrphanedContentCount;
+        while ((0 != remainingMetadataCount || 0 < orphanedContentCount)
+               && System.currentTimeMillis() < deadline) {
+            AndesClientUtils.sleepForInterval(DELETION_POLL_INTERVAL);
+            remainingMetadataCount = dataAccessUtil.getMessageCountForQueue(QUEUE_NAME);
+            orphanedContentCount = dataAccessUtil.getOrphanedContentMessageCount() - baselineOrphanedContentCount;
+        }
+
+        log.info("Acknowledged message deletion completed in [" + (System.currentTimeMillis() - deletionStartTime)
+                 + "ms] for [" + EXPECTED_COUNT + "] messages");
+
+        // Evaluate messages left in database
+        Assert.assertEquals(remainingMetadataCount, 0, "Message metadata left in database");
+        Assert.assertTrue(orphanedContentCount <= 0, "Message content left in database");
+    }
+
+    /**
+     * Cleanup after running tests.
+     *
+     * @throws AndesAdminServiceBrokerManagerAdminException
+     * @throws RemoteException
+     */
+    @AfterClass(alwaysRun = true)
+    public void destroy() throws AndesAdminServiceBrokerManagerAdminException, RemoteException {
+        AndesAdminClient tempAndesAdminClient = getAndesAdminClientWithKey(getRandomMBInstance());
+
+        if (tempAndesAdminClient.getQueueByName(QUEUE_NAME) != null) {
+            tempAndesAdminClient.deleteQueue(QUEUE_NAME);
+        }
+    }
+}
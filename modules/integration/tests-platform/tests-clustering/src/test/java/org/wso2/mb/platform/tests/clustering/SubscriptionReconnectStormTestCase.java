@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.platform.tests.clustering;
+
+import com.google.common.net.HostAndPort;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.andes.stub.AndesAdminServiceBrokerManagerAdminException;
+import org.wso2.carbon.authenticator.stub.LoginAuthenticationExceptionException;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.carbon.integration.common.utils.exceptions.AutomationUtilException;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.AndesJMSConsumer;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.exceptions.AndesClientConfigurationException;
+import org.wso2.mb.integration.common.clients.exceptions.AndesClientException;
+import org.wso2.mb.integration.common.clients.operations.clients.AndesAdminClient;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.platform.common.utils.DataAccessUtil;
+import org.wso2.mb.platform.common.utils.MBPlatformBaseTest;
+import org.wso2.mb.platform.common.utils.exceptions.DataAccessUtilException;
+import org.xml.sax.SAXException;
+
+import javax.jms.JMSException;
+import javax.naming.NamingException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.xpath.XPathExpressionException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load test in MB clustering for subscription churn caused by a fleet of clients reconnecting at
+ * once. In every round a large number of subscribers connect to one node in parallel, messages are
+ * published through another node and then every subscriber disconnects in parallel. The time taken
+ * to subscribe, to deliver the messages and to unsubscribe is logged for each round.
+ */
+public class SubscriptionReconnectStormTestCase extends MBPlatformBaseTest {
+
+    /**
+     * Number of subscribers connecting and disconnecting together
+     */
+    private static final int SUBSCRIBER_COUNT = 500;
+
+    /**
+     * Number of threads connecting and disconnecting the subscribers together
+     */
+    private static final int STORM_THREAD_COUNT = 50;
+
+    /**
+     * Number of reconnect rounds
+     */
+    private static final int ROUND_COUNT = 3;
+
+    /**
+     * Number of messages published in each round
+     */
+    private static final long SEND_COUNT_PER_ROUND = 5000L;
+
+    /**
+     * Maximum time to wait for the messages of a round to be received
+     */
+    private static final long DELIVERY_WAIT_TIMEOUT = 300000L;
+
+    private static final String QUEUE_NAME = "reconnectStormQueue";
+
+    private DataAccessUtil dataAccessUtil = new DataAccessUtil();
+
+    /**
+     * Prepare environment for tests.
+     *
+     * @throws LoginAuthenticationExceptionException
+     * @throws IOException
+     * @throws XPathExpressionException
+     * @throws URISyntaxException
+     * @throws SAXException
+     * @throws XMLStreamException
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init()
+            throws LoginAuthenticationExceptionException, IOException, XPathExpressionException,
+            URISyntaxException, SAXException, XMLStreamException, AutomationUtilException {
+        super.initCluster(TestUserMode.SUPER_TENANT_ADMIN);
+        super.initAndesAdminClients();
+    }
+
+    /**
+     * 1. Connect 500 subscribers to a random node in parallel and log the time taken.
+     * 2. Publish 5000 messages through a different node and log the time taken for the subscribers
+     * to receive them.
+     * 3. Disconnect every subscriber in parallel and log the time taken.
+     * 4. Repeat 3 times and verify no message is left in the store.
+     *
+     * @throws XPathExpressionException
+     * @throws AndesClientConfigurationException
+     * @throws NamingException
+     * @throws JMSException
+     * @throws IOException
+     * @throws AndesClientException
+     * @throws DataAccessUtilException
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    @Test(groups = "wso2.mb", description = "Subscription reconnect storm test case")
+    public void testSubscriptionReconnectStorm()
+            throws XPathExpressionException, AndesClientConfigurationException, NamingException, JMSException,
+                   IOException, AndesClientException, DataAccessUtilException, InterruptedException,
+                   ExecutionException {
+        long totalReceivedCount = 0L;
+
+        ExecutorService stormExecutor = Executors.newFixedThreadPool(STORM_THREAD_COUNT);
+
+        for (int round = 1; round <= ROUND_COUNT; round++) {
+            String consumerInstanceKey = getRandomMBInstance();
+            String publisherInstanceKey;
+            do {
+                publisherInstanceKey = getRandomMBInstance();
+            } while (consumerInstanceKey.equals(publisherInstanceKey));
+            HostAndPort consumerBrokerAddress = getAMQPBrokerAddress(consumerInstanceKey);
+            HostAndPort publisherBrokerAddress = getAMQPBrokerAddress(publisherInstanceKey);
+
+            final AndesJMSConsumerClientConfiguration consumerConfig =
+                    new AndesJMSConsumerClientConfiguration(consumerBrokerAddress.getHostText(),
+                                                            consumerBrokerAddress.getPort(),
+                                                            ExchangeType.QUEUE, QUEUE_NAME);
+            consumerConfig.setPrintsPerMessageCount(SEND_COUNT_PER_ROUND);
+
+            AndesJMSPublisherClientConfiguration publisherConfig =
+                    new AndesJMSPublisherClientConfiguration(publisherBrokerAddress.getHostText(),
+                                                             publisherBrokerAddress.getPort(),
+                                                             ExchangeType.QUEUE, QUEUE_NAME);
+            publisherConfig.setNumberOfMessagesToSend(SEND_COUNT_PER_ROUND);
+            publisherConfig.setPrintsPerMessageCount(SEND_COUNT_PER_ROUND / 10L);
+
+            // Connecting every subscriber in parallel
+            List<Future<AndesJMSConsumer>> subscribes = new ArrayList<>();
+            long subscribeStartTime = System.currentTimeMillis();
+            for (int i = 0; i < SUBSCRIBER_COUNT; i++) {
+                subscribes.add(stormExecutor.submit(new Callable<AndesJMSConsumer>() {
+                    @Override
+                    public AndesJMSConsumer call() throws Exception {
+                        AndesJMSConsumer consumer = new AndesJMSConsumer(consumerConfig, true);
+                        consumer.startClient();
+                        return consumer;
+                    }
+                }));
+            }
+            List<AndesJMSConsumer> consumers = new ArrayList<>();
+            for (Future<AndesJMSConsumer> subscribe : subscribes) {
+                consumers.add(subscribe.get());
+            }
+            long subscribeDuration = System.currentTimeMillis() - subscribeStartTime;
+
+            AndesClient publisherClient = new AndesClient(publisherConfig, true);
+            long publishStartTime = System.currentTimeMillis();
+            publisherClient.startClient();
+
+            long deadline = publishStartTime + DELIVERY_WAIT_TIMEOUT;
+            while (getReceivedMessageCount(consumers) < SEND_COUNT_PER_ROUND
+                   && System.currentTimeMillis() < deadline) {
+                AndesClientUtils.sleepForInterval(100L);
+            }
+            long deliveryDuration = System.currentTimeMillis() - publishStartTime;
+
+            // Disconnecting every subscriber in parallel, waiting for each connection to close
+            List<Future<Void>> unsubscribes = new ArrayList<>();
+            long unsubscribeStartTime = System.currentTimeMillis();
+            for (final AndesJMSConsumer consumer : consumers) {
+                unsubscribes.add(stormExecutor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        consumer.stopClientSync();
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> unsubscribe : unsubscribes) {
+                unsubscribe.get();
+            }
+            long unsubscribeDuration = System.currentTimeMillis() - unsubscribeStartTime;
+
+            log.info("[RECONNECT-STORM] Round:" + round + " SubscriberNode:" + consumerInstanceKey
+                     + " PublisherNode:" + publisherInstanceKey + " Subscribers:" + SUBSCRIBER_COUNT
+                     + " SubscribeDuration:" + subscribeDuration + "ms DeliveryDuration:" + deliveryDuration
+                     + "ms UnsubscribeDuration:" + unsubscribeDuration + "ms");
+
+            Assert.assertEquals(publisherClient.getSentMessageCount(), SEND_COUNT_PER_ROUND,
+                                "Message sending failed in round " + round);
+            totalReceivedCount = totalReceivedCount + getReceivedMessageCount(consumers);
+        }
+        stormExecutor.shutdown();
+
+        Assert.assertEquals(totalReceivedCount, SEND_COUNT_PER_ROUND * ROUND_COUNT, "Message receiving failed.");
+
+        // Evaluate messages left in database
+        Assert.assertEquals(dataAccessUtil.getMessageCountForQueue(QUEUE_NAME), 0, "Messages left in database");
+    }
+
+    /**
+     * Total number of messages received by the given consumers.
+     *
+     * @param consumers the consumers
+     * @return received message count
+     */
+    private long getReceivedMessageCount(List<AndesJMSConsumer> consumers) {
+        long receivedCount = 0L;
+        for (AndesJMSConsumer consumer : consumers) {
+            receivedCount = receivedCount + consumer.getReceivedMessageCount();
+        }
+        return receivedCount;
+    }
+
+    /**
+     * Cleanup after running tests.
+     *
+     * @throws AndesAdminServiceBrokerManagerAdminException
+     * @throws RemoteException
+     */
+    @AfterClass(alwaysRun = true)
+    public void destroy() throws AndesAdminServiceBrokerManagerAdminException, RemoteException {
+        AndesAdminClient tempAndesAdminClient = getAndesAdminClientWithKey(getRandomMBInstance());
+
+        if (tempAndesAdminClient.getQueueByName(QUEUE_NAME) != null) {
+            tempAndesAdminClient.deleteQueue(QUEUE_NAME);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.platform.tests.clustering;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.andes.stub.AndesAdminServiceBrokerManagerAdminException;
+import org.wso2.carbon.authenticator.stub.LoginAuthenticationExceptionException;
+import org.wso2.carbon.automation.engine.context.AutomationContext;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.carbon.integration.common.utils.exceptions.AutomationUtilException;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.exceptions.AndesClientConfigurationException;
+import org.wso2.mb.integration.common.clients.exceptions.AndesClientException;
+import org.wso2.mb.integration.common.clients.operations.clients.AndesAdminClient;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.platform.common.utils.DataAccessUtil;
+import org.wso2.mb.platform.common.utils.MBPlatformBaseTest;
+import org.wso2.mb.platform.common.utils.exceptions.DataAccessUtilException;
+import org.xml.sax.SAXException;
+
+import javax.jms.JMSException;
+import javax.naming.NamingException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.xpath.XPathExpressionException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.rmi.RemoteException;
+
+/**
+ * Load test in MB clustering for slot distribution when the consumers of a queue are uneven
+ * across nodes. One node has fast consumers and also receives the published messages, while
+ * another node has slow consumers. The share of messages delivered through each node and the
+ * total delivery time are logged. Slots should not be hoarded by the slow node, so most messages
+ * are expected to be delivered through the fast node.
+ */
+public class UnevenNodeConsumersTestCase extends MBPlatformBaseTest {
+
+    /**
+     * Number of messages published
+     */
+    private static final long SEND_COUNT = 20000L;
+
+    /**
+     * Number of consumers on each node
+     */
+    private static final int CONSUMER_COUNT_PER_NODE = 2;
+
+    /**
+     * Delay in milliseconds of the consumers of the slow node after each message
+     */
+    private static final long SLOW_CONSUMER_DELAY = 20L;
+
+    /**
+     * Maximum time to wait for every message to be received
+     */
+    private static final long DELIVERY_WAIT_TIMEOUT = 900000L;
+
+    private static final String QUEUE_NAME = "unevenNodeConsumersQueue";
+
+    private DataAccessUtil dataAccessUtil = new DataAccessUtil();
+
+    /**
+     * Prepare environment for tests.
+     *
+     * @throws LoginAuthenticationExceptionException
+     * @throws IOException
+     * @throws XPathExpressionException
+     * @throws URISyntaxException
+     * @throws SAXException
+     * @throws XMLStreamException
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init()
+            throws LoginAuthenticationExceptionException, IOException, XPathExpressionException,
+            URISyntaxException, SAXException, XMLStreamException, AutomationUtilException {
+        super.initCluster(TestUserMode.SUPER_TENANT_ADMIN);
+        super.initAndesAdminClients();
+    }
+
+    /**
+     * 1. Start 2 fast consumers on mb002 and 2 slow consumers on mb003 for a queue.
+     * 2. Publish 20000 messages through mb002.
+     * 3. Log the messages received through each node and the time taken to receive all of them.
+     * 4. Verify every message was received and no message or slot is left in the store.
+     *
+     * @throws XPathExpressionException
+     * @throws AndesClientConfigurationException
+     * @throws NamingException
+     * @throws JMSException
+     * @throws IOException
+     * @throws AndesClientException
+     * @throws DataAccessUtilException
+     */
+    @Test(groups = "wso2.mb", description = "Uneven consumers across nodes test case")
+    public void testUnevenNodeConsumers()
+            throws XPathExpressionException, AndesClientConfigurationException, NamingException, JMSException,
+                   IOException, AndesClientException, DataAccessUtilException {
+        AutomationContext fastNodeContext = getAutomationContextWithKey("mb002");
+        AutomationContext slowNodeContext = getAutomationContextWithKey("mb003");
+
+        AndesJMSConsumerClientConfiguration fastConsumerConfig =
+                new AndesJMSConsumerClientConfiguration(fastNodeContext.getInstance().getHosts().get("default"),
+                                         Integer.parseInt(fastNodeContext.getInstance().getPorts().get("amqp")),
+                                         ExchangeType.QUEUE, QUEUE_NAME);
+        fastConsumerConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+
+        AndesJMSConsumerClientConfiguration slowConsumerConfig =
+                new AndesJMSConsumerClientConfiguration(slowNodeContext.getInstance().getHosts().get("default"),
+                                         Integer.parseInt(slowNodeContext.getInstance().getPorts().get("amqp")),
+                                         ExchangeType.QUEUE, QUEUE_NAME);
+        slowConsumerConfig.setPrintsPerMessageCount(SEND_COUNT / 100L);
+        slowConsumerConfig.setRunningDelay(SLOW_CONSUMER_DELAY);
+
+        AndesJMSPublisherClientConfiguration publisherConfig =
+                new AndesJMSPublisherClientConfiguration(fastNodeContext.getInstance().getHosts().get("default"),
+                                        Integer.parseInt(fastNodeContext.getInstance().getPorts().get("amqp")),
+                                        ExchangeType.QUEUE, QUEUE_NAME);
+        publisherConfig.setNumberOfMessagesToSend(SEND_COUNT);
+        publisherConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+
+        // Creating clients
+        AndesClient fastConsumerClient = new AndesClient(fastConsumerConfig, CONSUMER_COUNT_PER_NODE, true);
+        fastConsumerClient.startClient();
+
+        AndesClient slowConsumerClient = new AndesClient(slowConsumerConfig, CONSUMER_COUNT_PER_NODE, true);
+        slowConsumerClient.startClient();
+
+        AndesClient publisherClient = new AndesClient(publisherConfig, true);
+        long publishStartTime = System.currentTimeMillis();
+        publisherClient.startClient();
+
+        long deadline = publishStartTime + DELIVERY_WAIT_TIMEOUT;
+        while (fastConsumerClient.getReceivedMessageCount() + slowConsumerClient.getReceivedMessageCount()
+               < SEND_COUNT && System.currentTimeMillis() < deadline) {
+            AndesClientUtils.sleepForInterval(100L);
+        }
+        long deliveryDuration = System.currentTimeMillis() - publishStartTime;
+
+        AndesClientUtils.shutdownClient(fastConsumerClient);
+        AndesClientUtils.shutdownClient(slowConsumerClient);
+
+        log.info("[UNEVEN-NODES] Messages:" + SEND_COUNT + " FastNodeReceived:"
+                 + fastConsumerClient.getReceivedMessageCount() + " SlowNodeReceived:"
+                 + slowConsumerClient.getReceivedMessageCount() + " DeliveryDuration:" + deliveryDuration + "ms");
+
+        // Evaluating
+        Assert.assertEquals(publisherClient.getSentMessageCount(), SEND_COUNT, "Message sending failed.");
+        Assert.assertEquals(fastConsumerClient.getReceivedMessageCount()
+                            + slowConsumerClient.getReceivedMessageCount(), SEND_COUNT, "Message receiving failed.");
+
+        // Wait until acknowledgements of the last messages are processed
+        AndesClientUtils.sleepForInterval(AndesClientConstants.DEFAULT_RUN_TIME);
+
+        // Evaluate messages left in database
+        Assert.assertEquals(dataAccessUtil.getMessageCountForQueue(QUEUE_NAME), 0, "Messages left in database");
+        // Evaluate slots left in database
+        Assert.assertEquals(dataAccessUtil.getAssignedSlotCountForQueue(QUEUE_NAME), 0, "Slots left in database");
+    }
+
+    /**
+     * Cleanup after running tests.
+     *
+     * @throws AndesAdminServiceBrokerManagerAdminException
+     * @throws RemoteException
+     */
+    @AfterClass(alwaysRun = true)
+    public void destroy() throws AndesAdminServiceBrokerManagerAdminException, RemoteException {
+        AndesAdminClient tempAndesAdminClient = getAndesAdminClientWithKey(getRandomMBInstance());
+
+        if (tempAndesAdminClient.getQueueByName(QUEUE_NAME) != null) {
+            tempAndesAdminClient.deleteQueue(QUEUE_NAME);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.platform.tests.clustering.durable.topic;
+
+import com.google.common.net.HostAndPort;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.authenticator.stub.LoginAuthenticationExceptionException;
+import org.wso2.carbon.automation.engine.context.TestUserMode;
+import org.wso2.carbon.integration.common.utils.exceptions.AutomationUtilException;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.exceptions.AndesClientConfigurationException;
+import org.wso2.mb.integration.common.clients.exceptions.AndesClientException;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.platform.common.utils.DataAccessUtil;
+import org.wso2.mb.platform.common.utils.MBPlatformBaseTest;
+import org.wso2.mb.platform.common.utils.exceptions.DataAccessUtilException;
+import org.xml.sax.SAXException;
+
+import javax.jms.JMSException;
+import javax.naming.NamingException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.xpath.XPathExpressionException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class measures store writes for durable topics with a wide fan-out. Messages are published
+ * while every durable subscriber is offline so that all of them are kept in the store, and the
+ * number of metadata entries written per published message is logged once the store has settled.
+ * Once the subscribers reconnect and consume, nothing should be left in the store.
+ */
+public class DurableTopicFanOutTestCase extends MBPlatformBaseTest {
+
+    private static final int SUBSCRIBER_COUNT = 500;
+    private static final long SEND_COUNT = 1000L;
+    private static final String TOPIC_NAME = "durableTopicFanOut";
+    private static final String SUBSCRIPTION_ID_PREFIX = "durableTopicFanOutSub";
+
+    /**
+     * Maximum time to wait for publishing, delivery or the store to settle
+     */
+    private static final long WAIT_TIMEOUT = 600000L;
+
+    /**
+     * Interval at which the store is polled while waiting for it to settle
+     */
+    private static final long STORE_POLL_INTERVAL = 1000L;
+
+    /**
+     * Number of consecutive polls returning the same count for the store to be considered settled
+     */
+    private static final int STABLE_POLL_COUNT = 5;
+
+    private DataAccessUtil dataAccessUtil = new DataAccessUtil();
+
+    /**
+     * Prepare environment for tests.
+     *
+     * @throws XPathExpressionException
+     * @throws URISyntaxException
+     * @throws SAXException
+     * @throws XMLStreamException
+     * @throws LoginAuthenticationExceptionException
+     * @throws IOException
+     */
+    @BeforeClass(alwaysRun = true)
+    public void init()
+            throws XPathExpressionException, URISyntaxException, SAXException, XMLStreamException,
+            LoginAuthenticationExceptionException, IOException, AutomationUtilException {
+        super.initCluster(TestUserMode.SUPER_TENANT_ADMIN);
+    }
+
+    /**
+     * 1. Create 500 durable subscriptions on a topic and disconnect them.
+     * 2. Publish 1000 messages to the topic.
+     * 3. Log the number of metadata entries written per published message.
+     * 4. Reconnect every subscriber and verify each of them receives all messages.
+     * 5. Verify no metadata or content is left in the store.
+     *
+     * @throws AndesClientConfigurationException
+     * @throws NamingException
+     * @throws JMSException
+     * @throws XPathExpressionException
+     * @throws IOException
+     * @throws AndesClientException
+     * @throws DataAccessUtilException
+     * @throws CloneNotSupportedException
+     */
+    @Test(groups = {"wso2.mb", "durableTopic"})
+    public void durableTopicFanOutTestCase()
+            throws AndesClientConfigurationException, NamingException, JMSException, XPathExpressionException,
+                   IOException, AndesClientException, DataAccessUtilException, CloneNotSupportedException {
+        HostAndPort brokerAddress = getRandomAMQPBrokerAddress();
+
+        AndesJMSConsumerClientConfiguration consumerConfig =
+                new AndesJMSConsumerClientConfiguration(brokerAddress.getHostText(), brokerAddress.getPort(),
+                                                        ExchangeType.TOPIC, TOPIC_NAME);
+        consumerConfig.setMaximumMessagesToReceived(SEND_COUNT);
+        consumerConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+
+        // Registering the durable subscriptions and disconnecting them
+        List<AndesJMSConsumerClientConfiguration> subscriberConfigs = new ArrayList<>(SUBSCRIBER_COUNT);
+        for (int i = 0; i < SUBSCRIBER_COUNT; i++) {
+            AndesJMSConsumerClientConfiguration subscriberConfig = consumerConfig.clone();
+            subscriberConfig.setDurable(true, SUBSCRIPTION_ID_PREFIX + i);
+            subscriberConfigs.add(subscriberConfig);
+
+            AndesClient subscriberClient = new AndesClient(subscriberConfig, true);
+            subscriberClient.startClient();
+            AndesClientUtils.shutdownClient(subscriberClient);
+        }
+        AndesClientUtils.sleepForInterval(AndesClientConstants.DEFAULT_RUN_TIME);
+
+        long metadataCountBeforePublish = waitForStableMetadataCount();
+        long orphanedContentCountBeforePublish = dataAccessUtil.getOrphanedContentMessageCount();
+
+        AndesJMSPublisherClientConfiguration publisherConfig =
+                new AndesJMSPublisherClientConfiguration(brokerAddress.getHostText(), brokerAddress.getPort(),
+                                                         ExchangeType.TOPIC, TOPIC_NAME);
+        publisherConfig.setNumberOfMessagesToSend(SEND_COUNT);
+        publisherConfig.setPrintsPerMessageCount(SEND_COUNT / 10L);
+
+        AndesClient publisherClient = new AndesClient(publisherConfig, true);
+        publisherClient.startClient();
+
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+        while (publisherClient.getSentMessageCount() < SEND_COUNT && System.currentTimeMillis() < deadline) {
+            AndesClientUtils.sleepForInterval(100L);
+        }
+
+        long metadataWritten = waitForStableMetadataCount() - metadataCountBeforePublish;
+        log.info("[FAN-OUT] Subscribers:" + SUBSCRIBER_COUNT + " PublishedMessages:" + SEND_COUNT
+                 + " MetadataEntriesWritten:" + metadataWritten + " EntriesPerMessage:"
+                 + ((double) metadataWritten / SEND_COUNT));
+
+        // Reconnecting the durable subscriptions and consuming
+        List<AndesClient> subscriberClients = new ArrayList<>(SUBSCRIBER_COUNT);
+        for (AndesJMSConsumerClientConfiguration subscriberConfig : subscriberConfigs) {
+            subscriberConfig.setUnSubscribeAfterEachMessageCount(SEND_COUNT);
+            AndesClient subscriberClient = new AndesClient(subscriberConfig, true);
+            subscriberClient.startClient();
+            subscriberClients.add(subscriberClient);
+        }
+
+        // Waiting on the combined received count once and shutting every subscriber down together
+        long expectedCount = SEND_COUNT * SUBSCRIBER_COUNT;
+        deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+        while (getReceivedMessageCount(subscriberClients) < expectedCount && System.currentTimeMillis() < deadline) {
+            AndesClientUtils.sleepForInterval(100L);
+        }
+        for (AndesClient subscriberClient : subscriberClients) {
+            AndesClientUtils.shutdownClient(subscriberClient);
+        }
+
+        Assert.assertEquals(publisherClient.getSentMessageCount(), SEND_COUNT, "Message sending failed.");
+        for (AndesClient subscriberClient : subscriberClients) {
+            Assert.assertEquals(subscriberClient.getReceivedMessageCount(), SEND_COUNT,
+                                "Message receiving failed for a durable subscription.");
+        }
+
+        // Evaluating messages left in database
+        Assert.assertEquals(waitForStableMetadataCount(), metadataCountBeforePublish,
+                            "Message metadata left in database");
+        Assert.assertTrue(dataAccessUtil.getOrphanedContentMessageCount() <= orphanedContentCountBeforePublish,
+                          "Message content left in database");
+    }
+
+    /**
+     * Poll the total metadata count until it stops changing, so that writes and deletes still in
+     * flight are reflected in the returned count.
+     *
+     * @return the settled metadata count
+     * @throws DataAccessUtilException
+     */
+    private long waitForStableMetadataCount() throws DataAccessUtilException {
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+        long metadataCount = dataAccessUtil.getTotalMessageMetadataCount();
+        int stablePolls = 0;
+        while (stablePolls < STABLE_POLL_COUNT && System.currentTimeMillis() < deadline) {
+            AndesClientUtils.sleepForInterval(STORE_POLL_INTERVAL);
+            long currentCount = dataAccessUtil.getTotalMessageMetadataCount();
+            if (currentCount == metadataCount) {
+                stablePolls++;
+            } else {
+                stablePolls = 0;
+                metadataCount = currentCount;
+            }
+        }
+        return metadataCount;
+    }
+
+    /**
+     * Total number of messages received by the given subscribers.
+     *
+     * @param subscriberClients the subscribers
+     * @return received message count
+     */
+    private long getReceivedMessageCount(List<AndesClient> subscriberClients) {
+        long receivedCount = 0L;
+        for (AndesClient subscriberClient : subscriberClients) {
+            receivedCount = receivedCount + subscriberClient.getReceivedMessageCount();
+        }
+        return receivedCount;
+    }
+}
@@ -0,0 +1,57 @@
+#!/usr/bin/env bash
+
+script_directory="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+
+#The MB distribution pack every node is extracted from
+mb_pack="${script_directory}/../../distribution/target/wso2mb-3.5.0-SNAPSHOT.zip"
+
+#Nodes are extracted to node1, node2 ... inside this directory
+cluster_directory="/tmp/mb_local_cluster"
+
+#Port offset of the first node. Node i gets the offset 'base_port_offset + i - 1'
+base_port_offset=0
+
+#Default ports of a node without an offset
+amqp_port=5672
+mqtt_port=1883
+thrift_port=7611
+hazelcast_port=4000
+
+#Heap of each node. Keep 'number of nodes * heap' below the memory of the host
+node_jvm_mem_opts="-Xms1024m -Xmx1024m -XX:MaxPermSize=256m"
+
+#Every node shares the message store of node1 through the H2 auto server mode
+shared_store_db="${cluster_directory}/shared_database/WSO2MB_DB"
+
+#Maximum time in seconds to wait for a node to open its AMQP port
+node_startup_timeout=300
+
+
+
+#Scaling benchmark configs
+#Cluster sizes to benchmark
+node_counts=(1 2 3 4);
+
+#Workloads run against each cluster size, supported values are queue and topic
+workloads=("queue" "topic");
+
+#Number of queues/topics used by a workload. Publishers and subscribers are spread evenly over the nodes
+destinations=10;
+
+#Total number of publishers and subscribers of a workload
+clients=20;
+
+#Number of messages each publisher sends. Each queue subscriber receives the same number of messages
+messages_per_publisher=10000;
+
+#Maximum aggregated publisher TPS of a workload
+max_publisher_tps=20000;
+
+#Message size, a data file with this name must exist in ../test_automation/data
+message_size="1KB";
+
+#Maximum time in seconds to wait for the JMeter clients of a workload to finish
+max_workload_time=3600;
+
+#The scaling report is written to this file
+scaling_report="${script_directory}/scaling_report.csv";
@@ -0,0 +1,100 @@
+#!/usr/bin/env bash
+
+# Starts N MB nodes on this host as a cluster. Every node is extracted from the same pack, gets
+# its own port offset, joins the others through well known members and uses a shared message store.
+# Usage: ./start_cluster.sh <number of nodes>
+
+source "$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )/cluster_config.sh"
+
+num_nodes=$1
+
+if [ -z "$num_nodes" ] || [ "$num_nodes" -lt 1 ]; then
+    echo "Usage: $0 <number of nodes>"
+    exit 1
+fi
+
+if [ ! -f "$mb_pack" ]; then
+    echo "MB pack not found at $mb_pack. Build the distribution or set 'mb_pack' in cluster_config.sh"
+    exit 1
+fi
+
+mkdir -p "$cluster_directory" "$(dirname "$shared_store_db")"
+
+# Well known member list of every node in the cluster
+members=""
+for i in $(seq 1 $num_nodes); do
+    offset=$((base_port_offset + i - 1))
+    members="${members}<member><hostName>127.0.0.1</hostName><port>$((hazelcast_port + offset))</port></member>"
+done
+
+function extractNode {
+    node_directory=$1
+
+    rm -rf "$node_directory"
+    mkdir -p "$node_directory"
+    unzip -q "$mb_pack" -d "$node_directory"
+    # The pack contains a single top level directory, flatten it
+    pack_home=$(ls -d "$node_directory"/*/ | head -1)
+    mv "$pack_home"* "$node_directory"/
+    rmdir "$pack_home"
+}
+
+function configureNode {
+    node_directory=$1
+    node_id=$2
+    offset=$3
+    conf_directory="$node_directory/repository/conf"
+
+    sed -i "s|<Offset>[0-9]*</Offset>|<Offset>${offset}</Offset>|" "$conf_directory/carbon.xml"
+
+    sed -i "s|<nodeID>default</nodeID>|<nodeID>${node_id}</nodeID>|" "$conf_directory/broker.xml"
+    sed -i "s|<thriftServerPort>[0-9]*</thriftServerPort>|<thriftServerPort>$((thrift_port + offset))</thriftServerPort>|" \
+        "$conf_directory/broker.xml"
+
+    # Enable clustering with well known members instead of multicast
+    sed -i '/HazelcastClusteringAgent"/{n;s|enable="false"|enable="true"|}' "$conf_directory/axis2.xml"
+    sed -i "s|<parameter name=\"membershipScheme\">multicast</parameter>|<parameter name=\"membershipScheme\">wka</parameter>|" \
+        "$conf_directory/axis2.xml"
+    sed -i "s|<parameter name=\"localMemberPort\">[0-9]*</parameter>|<parameter name=\"localMemberPort\">$((hazelcast_port + offset))</parameter>|" \
+        "$conf_directory/axis2.xml"
+    sed -i "/<members>/,/<\/members>/c\\        <members>${members}</members>" "$conf_directory/axis2.xml"
+
+    # Point the message store of every node to the same H2 database
+    sed -i "s|jdbc:h2:repository/database/WSO2MB_DB;|jdbc:h2:${shared_store_db};AUTO_SERVER=TRUE;|" \
+        "$conf_directory/datasources/master-datasources.xml"
+}
+
+function waitForNode {
+    node_id=$1
+    port=$2
+    waited=0
+
+    while ! (echo > /dev/tcp/127.0.0.1/$port) 2>/dev/null; do
+        if [ "$waited" -ge "$node_startup_timeout" ]; then
+            echo "$node_id did not open port $port within $node_startup_timeout seconds"
+            exit 1
+        fi
+        sleep 5
+        waited=$((waited + 5))
+    done
+    echo "$node_id started, AMQP port $port MQTT port $((mqtt_port + port - amqp_port))"
+}
+
+for i in $(seq 1 $num_nodes); do
+    node_directory="$cluster_directory/node$i"
+    offset=$((base_port_offset + i - 1))
+
+    extractNode "$node_directory"
+    configureNode "$node_directory" "node$i" $offset
+
+    # The shared store is created from the empty store shipped with the pack
+    if [ "$i" -eq 1 ] && [ ! -f "${shared_store_db}.h2.db" ]; then
+        cp "$node_directory/repository/database/WSO2MB_DB.h2.db" "${shared_store_db}.h2.db"
+    fi
+
+    # Nodes are started one after the other so that the first node becomes the coordinator
+    JVM_MEM_OPTS="$node_jvm_mem_opts" "$node_directory/bin/wso2server.sh" start > /dev/null
+    waitForNode "node$i" $((amqp_port + offset))
+done
+
+echo "Started a cluster of $num_nodes nodes in $cluster_directory"
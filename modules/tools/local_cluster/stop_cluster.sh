@@ -0,0 +1,24 @@
+#!/usr/bin/env bash
+
+# Stops every node started by start_cluster.sh and removes the shared message store so that the
+# next cluster starts empty.
+
+source "$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )/cluster_config.sh"
+
+for node_directory in "$cluster_directory"/node*; do
+    if [ -x "$node_directory/bin/wso2server.sh" ]; then
+        "$node_directory/bin/wso2server.sh" stop > /dev/null
+    fi
+done
+
+# Wait until every node has released its process
+for pid_file in "$cluster_directory"/node*/wso2carbon.pid; do
+    if [ -f "$pid_file" ]; then
+        while kill -0 $(cat "$pid_file") 2>/dev/null; do
+            sleep 2
+        done
+    fi
+done
+
+rm -rf "$(dirname "$shared_store_db")"
+echo "Stopped the cluster in $cluster_directory"
@@ -7,4 +7,5 @@ jmeterBinary="/home/sasikala/Documents/tools/apache-jmeter-2.13/bin/jmeter"
 subscriber_outfile_name="/tmp/test_subscriber.jmx"
 publisher_outfile_name="/tmp/test_publisher.jmx"
 
-jndi_location="${script_directory}/defaultjndi.properties"
+#JNDI_LOCATION can be set to use a different jndi file, e.g. the one generated by ../local_cluster/scaling_benchmark.sh
+jndi_location="${JNDI_LOCATION:-${script_directory}/defaultjndi.properties}"